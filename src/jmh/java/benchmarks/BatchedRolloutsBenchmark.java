@@ -0,0 +1,75 @@
+package benchmarks;
+
+import entrants.pacman.chiefsan.BatchedRollouts;
+import entrants.pacman.chiefsan.GhostModel;
+import entrants.pacman.chiefsan.JunctionRolloutPolicy;
+import entrants.pacman.chiefsan.RolloutHorizon;
+import entrants.pacman.chiefsan.SimulationGhosts;
+import org.openjdk.jmh.annotations.*;
+import pacman.game.Game;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the rollouts per second of BatchedRollouts and of the rollouts played one by one on Game copies,
+ * with the same pac-man and ghost rules and the rollout horizon of MyPacMan, from the default junction state.
+ * Every invocation plays one rollout per lane, reported per rollout. Run with "-prof gc" to compare
+ * the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BatchedRolloutsBenchmark {
+
+    private static final int LANES = BatchedRollouts.DEFAULT_LANES;
+    private static final int ROLLOUT_TICKS = 300;
+    private static final int ROLLOUT_JUNCTIONS = 10;
+
+    private Game game;
+    private RolloutHorizon horizon;
+    private BatchedRollouts engine;
+    private JunctionRolloutPolicy pacman;
+    private GhostModel ghosts;
+
+    @Setup
+    public void setup() {
+        game = BenchmarkGames.junctionState();
+        horizon = new RolloutHorizon(ROLLOUT_TICKS, ROLLOUT_JUNCTIONS);
+        engine = new BatchedRollouts(LANES, horizon, new SplittableRandom(BenchmarkGames.DEFAULT_SEED));
+        pacman = new JunctionRolloutPolicy();
+        ghosts = new SimulationGhosts(new SplittableRandom(BenchmarkGames.DEFAULT_SEED));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LANES)
+    public int batched() {
+        return engine.evaluate(game);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LANES)
+    public int scalar() {
+        long sum = 0;
+        for (int lane = 0; lane < LANES; lane++) {
+            Game rollout = game.copy();
+            int level = rollout.getCurrentLevel();
+            int ticks = 0;
+            int junctions = 0;
+
+            while (!rollout.gameOver() && rollout.getCurrentLevel() == level
+                    && !horizon.isReached(ticks, junctions)) {
+                rollout.advanceGame(pacman.getMove(rollout), ghosts.getMoves(rollout));
+                ticks++;
+                if (rollout.isJunction(rollout.getPacmanCurrentNodeIndex()))
+                    junctions++;
+            }
+
+            sum += horizon.isReached(ticks, junctions) ? horizon.evaluate(rollout) : rollout.getScore();
+        }
+        return (int) (sum / LANES);
+    }
+}
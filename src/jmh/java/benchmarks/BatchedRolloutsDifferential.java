@@ -0,0 +1,121 @@
+package benchmarks;
+
+import entrants.pacman.chiefsan.BatchedRollouts;
+import entrants.pacman.chiefsan.FastForwardModel;
+import entrants.pacman.chiefsan.GameStateCodec;
+import entrants.pacman.chiefsan.RolloutHorizon;
+import pacman.game.Constants;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Differential test of the lanes of BatchedRollouts against FastForwardModel. Every lane is loaded with its own
+ * random seeded game and paired with a model of the same game, and every lane and its model are stepped with the
+ * same random moves and the same random reversals. The states are compared through GameStateCodec after every
+ * tick until the lane and its model have ended. Pac-man is sometimes given an impossible move, so that both
+ * sides correct it, while the ghosts are always given a possible move other than going back, so that the random
+ * moves of the ghosts never come into play. After a mismatch the lane is left out of the comparison.
+ * Run with: java -cp target/benchmarks.jar benchmarks.BatchedRolloutsDifferential [batches [seed]]
+ * Exits with status 1 if any tick did not match.
+ */
+public final class BatchedRolloutsDifferential {
+
+    private static final int DEFAULT_BATCHES = 200;
+    private static final long DEFAULT_SEED = 42;
+    private static final int LANES = BatchedRollouts.DEFAULT_LANES;
+    private static final double IMPOSSIBLE_MOVE_PROBABILITY = 0.05;
+    private static final int REPORTED_MISMATCHES = 10;
+    private static final GHOST[] GHOSTS = GHOST.values();
+    private static final MOVE[] MOVES = MOVE.values();
+
+    private BatchedRolloutsDifferential() {
+    }
+
+    public static void main(String[] args) {
+        int batches = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_BATCHES;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_SEED;
+        Random random = new Random(seed);
+        BatchedRollouts engine = new BatchedRollouts(LANES, RolloutHorizon.FULL, new SplittableRandom(seed));
+
+        long ticks = 0;
+        long mismatches = 0;
+
+        for (int batch = 0; batch < batches; batch++) {
+            Game[] games = new Game[LANES];
+            FastForwardModel[] models = new FastForwardModel[LANES];
+            boolean[] compared = new boolean[LANES];
+            for (int lane = 0; lane < LANES; lane++) {
+                games[lane] = new Game(random.nextLong());
+                models[lane] = new FastForwardModel(games[lane], new SplittableRandom(random.nextLong()));
+                compared[lane] = true;
+            }
+            engine.load(games, LANES);
+
+            Game maze = games[0];
+            long[] expected = new long[GameStateCodec.getLength(maze.getCurrentMaze())];
+            long[] actual = new long[expected.length];
+            MOVE[] pacmanMoves = new MOVE[LANES];
+            MOVE[][] ghostMoves = new MOVE[LANES][GHOSTS.length];
+            int running = LANES;
+
+            while (running > 0) {
+                for (int lane = 0; lane < LANES; lane++) {
+                    FastForwardModel model = models[lane];
+                    pacmanMoves[lane] = random.nextDouble() < IMPOSSIBLE_MOVE_PROBABILITY
+                            ? MOVES[random.nextInt(MOVES.length)]
+                            : randomMove(maze.getPossibleMoves(model.getPacmanNode()), random);
+                    for (GHOST ghost: GHOSTS) {
+                        ghostMoves[lane][ghost.ordinal()] = model.getGhostLairTime(ghost) > 0 ? null
+                                : randomMove(maze.getPossibleMoves(model.getGhostNode(ghost),
+                                model.getGhostLastMove(ghost)), random);
+                    }
+                }
+
+                boolean reverse = random.nextDouble() < Constants.GHOST_REVERSAL;
+                engine.advance(pacmanMoves, ghostMoves, reverse);
+
+                running = 0;
+                for (int lane = 0; lane < LANES; lane++) {
+                    FastForwardModel model = models[lane];
+                    if (!compared[lane] || model.isGameOver() || model.isLevelCleared())
+                        continue;
+
+                    model.advance(pacmanMoves[lane], ghostMoves[lane], reverse);
+                    ticks++;
+
+                    boolean ended = model.isGameOver() || model.isLevelCleared();
+                    if (GameStateCodec.equals(model.encode(expected), engine.encode(lane, actual))
+                            && ended != engine.isRunning(lane)) {
+                        if (!ended)
+                            running++;
+                        continue;
+                    }
+
+                    if (mismatches++ < REPORTED_MISMATCHES) {
+                        System.out.println("Mismatch in batch " + batch + ", lane " + lane
+                                + " at tick " + model.getTotalTime());
+                        System.out.println("  model: " + Arrays.toString(expected) + (ended ? " ended" : ""));
+                        System.out.println("  lane:  " + Arrays.toString(actual)
+                                + (engine.isRunning(lane) ? "" : " ended"));
+                    }
+                    compared[lane] = false;
+                }
+            }
+        }
+
+        System.out.printf("%d batches of %d lanes, %d ticks, %d mismatches%n", batches, LANES, ticks, mismatches);
+        if (mismatches > 0)
+            System.exit(1);
+    }
+
+    private static MOVE randomMove(MOVE[] moves, Random random) {
+        if (moves == null || moves.length == 0)
+            return MOVE.NEUTRAL;
+        return moves[random.nextInt(moves.length)];
+    }
+}
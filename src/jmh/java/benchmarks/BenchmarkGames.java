@@ -0,0 +1,66 @@
+package benchmarks;
+
+import entrants.pacman.chiefsan.GhostModel;
+import entrants.pacman.chiefsan.JunctionRolloutPolicy;
+import entrants.pacman.chiefsan.SimulationGhosts;
+import pacman.controllers.MASController;
+import pacman.controllers.PacmanController;
+import pacman.controllers.examples.StarterPacMan;
+import pacman.controllers.examples.po.POCommGhosts;
+import pacman.game.Game;
+
+/**
+ * Game states shared by the benchmarks
+ */
+public final class BenchmarkGames {
+
+    public static final long DEFAULT_SEED = 42;
+    public static final int DEFAULT_TICKS = 200;
+
+    private BenchmarkGames() {
+    }
+
+    /**
+     * Plays a seeded game with the starter controllers for a number of ticks and then until
+     * pac-man reaches a junction, which is where the controller runs its search
+     * @param seed seed of the game
+     * @param ticks minimum number of ticks to play
+     * @return game state with pac-man on a junction
+     */
+    public static Game junctionState(long seed, int ticks) {
+        Game game = new Game(seed);
+        PacmanController pacman = new StarterPacMan();
+        MASController ghosts = new POCommGhosts(50);
+
+        int i = 0;
+        while (!game.gameOver()
+                && (i++ < ticks || !game.isJunction(game.getPacmanCurrentNodeIndex()))) {
+            game.advanceGame(pacman.getMove(game.copy(), -1), ghosts.getMove(game.copy(), -1));
+        }
+
+        return game;
+    }
+
+    public static Game junctionState() {
+        return junctionState(DEFAULT_SEED, DEFAULT_TICKS);
+    }
+
+    /**
+     * Records the states of a rollout from the default junction state, so that a benchmark can cycle
+     * through situations both on junctions and in corridors
+     * @param count number of states to record
+     * @return states, the last ones repeated if the game ends early
+     */
+    public static Game[] rolloutStates(int count) {
+        Game game = junctionState();
+        JunctionRolloutPolicy pacman = new JunctionRolloutPolicy();
+        GhostModel ghosts = new SimulationGhosts();
+        Game[] states = new Game[count];
+        for (int i = 0; i < count; i++) {
+            states[i] = game.copy();
+            if (!game.gameOver())
+                game.advanceGame(pacman.getMove(game), ghosts.getMoves(game));
+        }
+        return states;
+    }
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import entrants.pacman.chiefsan.MyPacMan;
+import org.openjdk.jmh.annotations.*;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rules MyPacMan applies outside of the search. Every invocation runs on the next state of a
+ * recorded rollout, which goes through junctions and corridors, near and far from the ghosts.
+ * Run with "-prof gc" to compare the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ControllerBenchmark {
+
+    private static final int STATES = 256;
+
+    private Game[] states;
+    private int next;
+    private SplittableRandom random;
+
+    @Setup
+    public void setup() {
+        states = BenchmarkGames.rolloutStates(STATES);
+        random = new SplittableRandom(BenchmarkGames.DEFAULT_SEED);
+    }
+
+    private Game nextState() {
+        Game game = states[next];
+        next = (next + 1) % STATES;
+        return game;
+    }
+
+    @Benchmark
+    public MOVE nonJunctionSim() {
+        return MyPacMan.nonJunctionSim(nextState(), random);
+    }
+
+    @Benchmark
+    public MOVE checkNearByGhost() {
+        return MyPacMan.checkNearByGhost(nextState());
+    }
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import entrants.pacman.chiefsan.FastForwardModel;
+import org.openjdk.jmh.annotations.*;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+import java.util.EnumMap;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ticks per second of Game.advanceGame and FastForwardModel. A random walk of pac-man and the ghosts
+ * is recorded once, and every invocation plays the next tick of it, starting over from the junction state
+ * once the walk is over. Both sides get the same moves and restart with a copy or a load of the same state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ForwardModelBenchmark {
+
+    private static final int TICKS = 256;
+    private static final GHOST[] GHOSTS = GHOST.values();
+
+    private Game start;
+    private MOVE[] pacmanMoves;
+    private EnumMap<GHOST, MOVE>[] ghostMoves;
+    private MOVE[][] ghostMoveArrays;
+    private Game game;
+    private FastForwardModel model;
+    private int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        start = BenchmarkGames.junctionState();
+        pacmanMoves = new MOVE[TICKS];
+        ghostMoves = new EnumMap[TICKS];
+        ghostMoveArrays = new MOVE[TICKS][GHOSTS.length];
+
+        Random random = new Random(BenchmarkGames.DEFAULT_SEED);
+        Game walk = start.copy();
+        for (int i = 0; i < TICKS; i++) {
+            MOVE[] moves = walk.getPossibleMoves(walk.getPacmanCurrentNodeIndex());
+            pacmanMoves[i] = moves[random.nextInt(moves.length)];
+            ghostMoves[i] = new EnumMap<>(GHOST.class);
+            for (GHOST ghost: GHOSTS) {
+                if (walk.getGhostLairTime(ghost) > 0)
+                    continue;
+                MOVE[] possible = walk.getPossibleMoves(walk.getGhostCurrentNodeIndex(ghost),
+                        walk.getGhostLastMoveMade(ghost));
+                MOVE move = possible[random.nextInt(possible.length)];
+                ghostMoves[i].put(ghost, move);
+                ghostMoveArrays[i][ghost.ordinal()] = move;
+            }
+            if (!walk.gameOver())
+                walk.advanceGame(pacmanMoves[i], ghostMoves[i]);
+        }
+
+        game = start.copy();
+        model = new FastForwardModel(start, new SplittableRandom(BenchmarkGames.DEFAULT_SEED));
+    }
+
+    @Benchmark
+    public int game() {
+        if (next == TICKS || game.gameOver()) {
+            game = start.copy();
+            next = 0;
+        }
+        game.advanceGame(pacmanMoves[next], ghostMoves[next].clone());
+        next++;
+        return game.getPacmanCurrentNodeIndex();
+    }
+
+    @Benchmark
+    public int model() {
+        if (next == TICKS || model.isGameOver() || model.isLevelCleared()) {
+            model.load(start);
+            next = 0;
+        }
+        model.advance(pacmanMoves[next], ghostMoveArrays[next]);
+        next++;
+        return model.getPacmanNode();
+    }
+}
@@ -0,0 +1,117 @@
+package benchmarks;
+
+import entrants.pacman.chiefsan.FastForwardModel;
+import entrants.pacman.chiefsan.GameStateCodec;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Differential test of FastForwardModel against Game.advanceGame. Random seeded games are stepped in both
+ * with the same random moves, and the states are compared through GameStateCodec after every tick until the
+ * end of the first level. The ghosts are always given a possible move other than going back, so the random
+ * moves of the framework never come into play. The random reversals of the framework cannot be replayed:
+ * when a tick only matches once the ghosts of the model reverse, it is counted as a reversal instead of a
+ * mismatch. In the first ticks of a level, where Game never reverses the ghosts, the model is also advanced with a
+ * forced reversal, which has to leave the ghosts as they are, and a tick that does not match is always a mismatch.
+ * After a mismatch the model is reloaded from the game and the comparison goes on.
+ * Run with: java -cp target/benchmarks.jar benchmarks.ForwardModelDifferential [games [seed]]
+ * Exits with status 1 if any tick did not match.
+ */
+public final class ForwardModelDifferential {
+
+    private static final int DEFAULT_GAMES = 2000;
+    private static final long DEFAULT_SEED = 42;
+    private static final int REPORTED_MISMATCHES = 10;
+    private static final GHOST[] GHOSTS = GHOST.values();
+
+    private ForwardModelDifferential() {
+    }
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_SEED;
+        Random random = new Random(seed);
+
+        long ticks = 0;
+        long reversals = 0;
+        long mismatches = 0;
+
+        for (int i = 0; i < games; i++) {
+            Game game = new Game(random.nextLong());
+            FastForwardModel model = new FastForwardModel(game, new SplittableRandom(random.nextLong()));
+            FastForwardModel previous = new FastForwardModel(game);
+            FastForwardModel forced = new FastForwardModel(game);
+            long[] expected = new long[GameStateCodec.getLength(game.getCurrentMaze())];
+            long[] actual = new long[expected.length];
+            EnumMap<GHOST, MOVE> ghostMoves = new EnumMap<>(GHOST.class);
+            MOVE[] moves = new MOVE[GHOSTS.length];
+            int level = game.getCurrentLevel();
+
+            while (!game.gameOver() && game.getCurrentLevel() == level) {
+                MOVE pacmanMove = randomMove(game.getPossibleMoves(game.getPacmanCurrentNodeIndex()), random);
+                ghostMoves.clear();
+                Arrays.fill(moves, null);
+                for (GHOST ghost: GHOSTS) {
+                    if (game.getGhostLairTime(ghost) > 0)
+                        continue;
+                    MOVE move = randomMove(game.getPossibleMoves(game.getGhostCurrentNodeIndex(ghost),
+                            game.getGhostLastMoveMade(ghost)), random);
+                    ghostMoves.put(ghost, move);
+                    moves[ghost.ordinal()] = move;
+                }
+
+                boolean levelStart = model.getLevelTime() <= 1;
+                previous.copyFrom(model);
+                game.advanceGame(pacmanMove, ghostMoves);
+                model.advance(pacmanMove, moves, false);
+                ticks++;
+
+                if (model.isLevelCleared())
+                    break; // the game has moved to the next maze
+
+                GameStateCodec.encode(game, expected);
+                boolean matched = GameStateCodec.equals(expected, model.encode(actual));
+                if (matched && levelStart) {
+                    forced.copyFrom(previous);
+                    forced.advance(pacmanMove, moves, true);
+                    matched = GameStateCodec.equals(expected, forced.encode(actual));
+                }
+                if (matched)
+                    continue;
+
+                if (!levelStart) {
+                    model.copyFrom(previous);
+                    model.advance(pacmanMove, moves, true);
+                    if (GameStateCodec.equals(expected, model.encode(actual))) {
+                        reversals++;
+                        continue;
+                    }
+                }
+
+                if (mismatches++ < REPORTED_MISMATCHES) {
+                    System.out.println("Mismatch in game " + i + " at tick " + game.getTotalTime());
+                    System.out.println("  game:  " + Arrays.toString(expected));
+                    System.out.println("  model: " + Arrays.toString(actual));
+                }
+                model.load(game);
+            }
+        }
+
+        System.out.printf("%d games, %d ticks, %d random reversals, %d mismatches%n",
+                games, ticks, reversals, mismatches);
+        if (mismatches > 0)
+            System.exit(1);
+    }
+
+    private static MOVE randomMove(MOVE[] moves, Random random) {
+        if (moves == null || moves.length == 0)
+            return MOVE.NEUTRAL;
+        return moves[random.nextInt(moves.length)];
+    }
+}
@@ -0,0 +1,73 @@
+package benchmarks;
+
+import entrants.pacman.chiefsan.FastForwardModel;
+import entrants.pacman.chiefsan.GameStateCodec;
+import entrants.pacman.chiefsan.MonteCarloTree;
+import org.openjdk.jmh.annotations.*;
+import pacman.game.Game;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways of saving and restoring a game state during the search: a plain Game.copy(),
+ * a push/pop on the tree's state stack, a restore through GameInfo, which is the only way to
+ * rebuild a Game from a snapshot of its fields, a GameStateCodec snapshot into a reused long[] and its
+ * decoding back into a Game, and the in-place restore of a FastForwardModel from a saved model.
+ * Run with "-prof gc" to compare the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GameStateBenchmark {
+
+    private Game game;
+    private MonteCarloTree tree;
+    private long[] state;
+    private FastForwardModel model;
+    private FastForwardModel snapshot;
+
+    @Setup
+    public void setup() {
+        game = BenchmarkGames.junctionState();
+        tree = new MonteCarloTree(game);
+        state = GameStateCodec.encode(game);
+        model = new FastForwardModel(game);
+        snapshot = new FastForwardModel(game);
+    }
+
+    @Benchmark
+    public Game copy() {
+        return game.copy();
+    }
+
+    @Benchmark
+    public Game pushPop() {
+        Game pushed = tree.pushGameState();
+        tree.popGameState();
+        return pushed;
+    }
+
+    @Benchmark
+    public Game gameFromInfo() {
+        return game.getGameFromInfo(game.getPopulatedGameInfo());
+    }
+
+    @Benchmark
+    public long[] codecSnapshot() {
+        return GameStateCodec.encode(game, state);
+    }
+
+    @Benchmark
+    public Game codecRestore() {
+        return GameStateCodec.decode(state, game);
+    }
+
+    @Benchmark
+    public int forwardModelRestore() {
+        model.copyFrom(snapshot);
+        return model.getPacmanNode();
+    }
+}
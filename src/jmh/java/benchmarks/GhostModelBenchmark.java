@@ -0,0 +1,59 @@
+package benchmarks;
+
+import entrants.pacman.chiefsan.ControllerGhostModel;
+import entrants.pacman.chiefsan.GhostModel;
+import entrants.pacman.chiefsan.JunctionRolloutPolicy;
+import entrants.pacman.chiefsan.SimulationGhosts;
+import org.openjdk.jmh.annotations.*;
+import pacman.controllers.examples.po.POCommGhosts;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of the ghost decisions of one tick. The states of a short rollout are recorded once,
+ * and every invocation asks the ghost model for the moves of the next recorded state, so that the score
+ * is the number of ticks per second the model can decide. Run with "-prof gc" to compare the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GhostModelBenchmark {
+
+    private static final int STATES = 256;
+
+    @Param({"pocomm", "simulation"})
+    public String model;
+
+    private GhostModel ghosts;
+    private Game[] states;
+    private int next;
+
+    @Setup
+    public void setup() {
+        ghosts = "simulation".equals(model) ? new SimulationGhosts() : new ControllerGhostModel(new POCommGhosts(50));
+
+        Game game = BenchmarkGames.junctionState();
+        JunctionRolloutPolicy pacman = new JunctionRolloutPolicy();
+        GhostModel recorder = new SimulationGhosts();
+        states = new Game[STATES];
+        for (int i = 0; i < STATES; i++) {
+            states[i] = game.copy();
+            if (!game.gameOver())
+                game.advanceGame(pacman.getMove(game), recorder.getMoves(game));
+        }
+    }
+
+    @Benchmark
+    public Map<GHOST, MOVE> decide() {
+        Game game = states[next];
+        next = (next + 1) % STATES;
+        return ghosts.getMoves(game);
+    }
+}
@@ -0,0 +1,29 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks of the controller hot paths with the GC profiler, reporting the operations per second
+ * and the allocation rate (gc.alloc.rate.norm, bytes per operation) of each of them.
+ * Run with: java -cp target/benchmarks.jar benchmarks.HotPathBenchmarks [regexp]
+ */
+public final class HotPathBenchmarks {
+
+    private static final String DEFAULT_INCLUDE =
+            "Search|Controller|TreeEvaluator|Prediction|ForwardModel|BatchedRollouts|GhostModel|RolloutPolicy";
+
+    private HotPathBenchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "benchmarks\\.(" + DEFAULT_INCLUDE + ")Benchmark")
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
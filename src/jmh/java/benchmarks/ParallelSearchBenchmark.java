@@ -0,0 +1,69 @@
+package benchmarks;
+
+import entrants.pacman.chiefsan.LeafParallelSearch;
+import entrants.pacman.chiefsan.MonteCarloTree;
+import entrants.pacman.chiefsan.ParallelSearch;
+import entrants.pacman.chiefsan.RootParallelSearch;
+import entrants.pacman.chiefsan.TreeParallelSearch;
+import org.openjdk.jmh.annotations.*;
+import pacman.game.Game;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the simulation throughput of the root, tree and leaf parallel searches scales with
+ * the number of threads. Every invocation searches for one tick budget; the "simulations" counter is
+ * reported by JMH as simulations per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParallelSearchBenchmark {
+
+    private static final long TICK_BUDGET = TimeUnit.MILLISECONDS.toNanos(35);
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads;
+
+    @Param({"root", "tree", "leaf"})
+    public String mode;
+
+    private ParallelSearch search;
+    private Game game;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Simulations {
+        public long simulations;
+    }
+
+    @Setup
+    public void setup() {
+        game = BenchmarkGames.junctionState();
+        switch (mode) {
+            case "tree":
+                search = new TreeParallelSearch(threads);
+                break;
+            case "leaf":
+                search = new LeafParallelSearch(threads);
+                break;
+            default:
+                search = new RootParallelSearch(threads);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        search.shutdown();
+    }
+
+    @Benchmark
+    public MonteCarloTree tick(Simulations counter) {
+        MonteCarloTree tree = search.search(game, System.nanoTime() + TICK_BUDGET);
+        counter.simulations += search.getLastSimulationCount();
+        return tree;
+    }
+}
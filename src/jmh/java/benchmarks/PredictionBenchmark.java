@@ -0,0 +1,97 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pacman.game.Constants.GHOST;
+import pacman.game.Game;
+import pacman.game.internal.Maze;
+import prediction.GhostLocation;
+import prediction.GhostPredictor;
+import prediction.fast.GhostPredictionsFast;
+import prediction.fast.IndividualLocationsFast;
+
+import java.util.EnumMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the ghost predictions. The beliefs start from the ghosts seen in the default junction state and
+ * are spread by a few updates, and the updated beliefs are reset before every iteration so that they do not
+ * drift away from that spread. GhostPredictor.getPredictions is measured after a new observation, which is
+ * when it has to rebuild its predictions up to the requested depth.
+ * Run with "-prof gc" to compare the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PredictionBenchmark {
+
+    private static final int SPREAD = 10;
+
+    @Param({"10", "40"})
+    public int depth;
+
+    private Game game;
+    private Maze maze;
+    private GhostPredictionsFast spread;
+    private GhostPredictionsFast predictions;
+    private IndividualLocationsFast locations;
+    private GhostPredictor predictor;
+
+    @Setup
+    public void setup() {
+        game = BenchmarkGames.junctionState();
+        maze = game.getCurrentMaze();
+
+        spread = new GhostPredictionsFast(maze);
+        spread.preallocate();
+        for (GHOST ghost: GHOST.values()) {
+            spread.observe(ghost, game.getGhostCurrentNodeIndex(ghost), game.getGhostLastMoveMade(ghost));
+        }
+        for (int i = 0; i < SPREAD; i++) {
+            spread.update();
+        }
+
+        predictor = new GhostPredictor();
+        predictor.clear(maze);
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        predictions = spread.copy();
+        locations = new IndividualLocationsFast(maze);
+        locations.observe(game.getGhostCurrentNodeIndex(GHOST.BLINKY), game.getGhostLastMoveMade(GHOST.BLINKY));
+    }
+
+    @Benchmark
+    public GhostPredictionsFast update() {
+        predictions.update();
+        return predictions;
+    }
+
+    @Benchmark
+    public GhostPredictionsFast copy() {
+        return spread.copy();
+    }
+
+    @Benchmark
+    public EnumMap<GHOST, GhostLocation> sampleLocations() {
+        return spread.sampleLocations();
+    }
+
+    @Benchmark
+    public IndividualLocationsFast individualUpdate() {
+        locations.update();
+        return locations;
+    }
+
+    @Benchmark
+    public double getPredictions() {
+        for (GHOST ghost: GHOST.values()) {
+            predictor.addObservation(ghost, game.getGhostCurrentNodeIndex(ghost), game.getGhostLastMoveMade(ghost));
+        }
+        predictor.observationsFinished();
+        return predictor.getPredictions(depth, game.getPacmanCurrentNodeIndex());
+    }
+}
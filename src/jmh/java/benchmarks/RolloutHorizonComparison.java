@@ -0,0 +1,72 @@
+package benchmarks;
+
+import entrants.pacman.chiefsan.MonteCarloTree;
+import entrants.pacman.chiefsan.NodePool;
+import entrants.pacman.chiefsan.RolloutHorizon;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+/**
+ * Sanity check of the depth-capped rollouts. Every seeded junction state is searched with the same number of
+ * simulations using full-length rollouts and using capped rollouts, and the comparison reports the simulation
+ * throughput of both and how often the capped search picks the move of the full-length one. As the full-length
+ * search is noisy itself, the agreement of two independent full-length searches is reported as the baseline.
+ * Run with: java -cp target/benchmarks.jar benchmarks.RolloutHorizonComparison [simulations [ticks [junctions]]]
+ */
+public final class RolloutHorizonComparison {
+
+    private static final int DEFAULT_SIMULATIONS = 100;
+    private static final int DEFAULT_TICKS = 300;
+    private static final int DEFAULT_JUNCTIONS = 10;
+    private static final int STATES = 10;
+    private static final int REPEATS = 3;
+
+    private RolloutHorizonComparison() {
+    }
+
+    public static void main(String[] args) {
+        int simulations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIMULATIONS;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TICKS;
+        int junctions = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_JUNCTIONS;
+        RolloutHorizon capped = new RolloutHorizon(ticks, junctions);
+
+        int searches = 0, cappedAgreements = 0, baselineAgreements = 0;
+        long fullTime = 0, cappedTime = 0;
+
+        for (int state = 0; state < STATES; state++) {
+            Game game = BenchmarkGames.junctionState(BenchmarkGames.DEFAULT_SEED + state, BenchmarkGames.DEFAULT_TICKS);
+
+            for (int repeat = 0; repeat < REPEATS; repeat++) {
+                long start = System.nanoTime();
+                MOVE full = search(game, RolloutHorizon.FULL, simulations);
+                fullTime += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                MOVE cut = search(game, capped, simulations);
+                cappedTime += System.nanoTime() - start;
+
+                MOVE baseline = search(game, RolloutHorizon.FULL, simulations);
+
+                searches++;
+                if (cut == full)
+                    cappedAgreements++;
+                if (baseline == full)
+                    baselineAgreements++;
+            }
+        }
+
+        System.out.printf("horizon: %d ticks, %d junctions, %d simulations per search, %d searches%n",
+                ticks, junctions, simulations, searches);
+        System.out.printf("full-length rollouts: %10.1f simulations/s%n", searches * simulations * 1e9 / fullTime);
+        System.out.printf("capped rollouts:      %10.1f simulations/s%n", searches * simulations * 1e9 / cappedTime);
+        System.out.printf("capped vs full agreement:    %5.1f%%%n", 100.0 * cappedAgreements / searches);
+        System.out.printf("full vs full agreement:      %5.1f%%%n", 100.0 * baselineAgreements / searches);
+    }
+
+    private static MOVE search(Game game, RolloutHorizon horizon, int simulations) {
+        MonteCarloTree tree = new MonteCarloTree(game, new NodePool());
+        tree.setRolloutHorizon(horizon);
+        tree.simulate(simulations);
+        return tree.bestNode().getMove();
+    }
+}
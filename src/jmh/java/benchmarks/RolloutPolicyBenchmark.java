@@ -0,0 +1,62 @@
+package benchmarks;
+
+import entrants.pacman.chiefsan.JunctionRolloutPolicy;
+import entrants.pacman.chiefsan.RolloutPolicy;
+import entrants.pacman.chiefsan.StarterRolloutPolicy;
+import org.openjdk.jmh.annotations.*;
+import pacman.controllers.MASController;
+import pacman.controllers.examples.po.POCommGhosts;
+import pacman.game.Game;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rollout throughput of the rollout policies. Every invocation plays a rollout of at most
+ * ROLLOUT_TICKS ticks from a junction state against the ghost model of the tree; the "ticks" counter is
+ * reported by JMH as rollout ticks per second. Run with "-prof gc" to compare the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RolloutPolicyBenchmark {
+
+    private static final int ROLLOUT_TICKS = 300;
+
+    @Param({"starter", "junction"})
+    public String policy;
+
+    private RolloutPolicy rolloutPolicy;
+    private MASController ghosts;
+    private Game game;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Ticks {
+        public long ticks;
+    }
+
+    @Setup
+    public void setup() {
+        game = BenchmarkGames.junctionState();
+        ghosts = new POCommGhosts(50);
+        rolloutPolicy = "junction".equals(policy) ? new JunctionRolloutPolicy() : new StarterRolloutPolicy();
+    }
+
+    @Benchmark
+    public int rollout(Ticks counter) {
+        Game rollout = game.copy();
+        int level = rollout.getCurrentLevel();
+        int i = 0;
+
+        while (i < ROLLOUT_TICKS && !rollout.gameOver() && rollout.getCurrentLevel() == level) {
+            rollout.advanceGame(rolloutPolicy.getMove(rollout), ghosts.getMove(rollout, 0));
+            i++;
+        }
+
+        counter.ticks += i;
+        return rollout.getScore();
+    }
+}
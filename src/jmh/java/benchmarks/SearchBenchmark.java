@@ -0,0 +1,54 @@
+package benchmarks;
+
+import entrants.pacman.chiefsan.JunctionRolloutPolicy;
+import entrants.pacman.chiefsan.MonteCarloTree;
+import entrants.pacman.chiefsan.NodePool;
+import entrants.pacman.chiefsan.RolloutHorizon;
+import entrants.pacman.chiefsan.SimulationGhosts;
+import org.openjdk.jmh.annotations.*;
+import pacman.game.Game;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of MonteCarloTree.simulate() from the default junction state, with the rollout setup
+ * of MyPacMan. The tree is rebuilt on a recycled pool before every iteration, so that every iteration grows
+ * the tree from the root. Run with "-prof gc" to see the allocation rate of a simulation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final int ROLLOUT_TICKS = 300;
+    private static final int ROLLOUT_JUNCTIONS = 10;
+
+    private Game game;
+    private NodePool pool;
+    private MonteCarloTree tree;
+
+    @Setup
+    public void setup() {
+        game = BenchmarkGames.junctionState();
+        pool = new NodePool();
+    }
+
+    @Setup(Level.Iteration)
+    public void newTree() {
+        tree = new MonteCarloTree(game, pool);
+        tree.setRandom(new SplittableRandom(BenchmarkGames.DEFAULT_SEED));
+        tree.setRolloutHorizon(new RolloutHorizon(ROLLOUT_TICKS, ROLLOUT_JUNCTIONS));
+        tree.setRolloutPolicy(new JunctionRolloutPolicy());
+        tree.setGhostModel(SimulationGhosts::new);
+    }
+
+    @Benchmark
+    public int simulate() {
+        tree.simulate();
+        return tree.getRootNode().getNumberOfVisits();
+    }
+}
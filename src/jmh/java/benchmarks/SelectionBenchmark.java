@@ -0,0 +1,87 @@
+package benchmarks;
+
+import entrants.pacman.chiefsan.*;
+import org.openjdk.jmh.annotations.*;
+import pacman.game.Constants.MOVE;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the selection policies descending from the root to a leaf, without any game.
+ * The wide tree is a full tree with four children per node, the deep tree a long chain of junctions
+ * with three children each, of which only one is expanded. Every node holds random statistics.
+ * Run with "-prof gc" to check that selection does not allocate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SelectionBenchmark {
+
+    private static final MOVE[] WIDE_MOVES = {MOVE.UP, MOVE.RIGHT, MOVE.DOWN, MOVE.LEFT};
+    private static final MOVE[] DEEP_MOVES = {MOVE.UP, MOVE.RIGHT, MOVE.LEFT};
+    private static final int WIDE_DEPTH = 6;
+    private static final int DEEP_DEPTH = 200;
+
+    @Param({"wide", "deep"})
+    public String shape;
+
+    @Param({"ucb1", "ucb1-tuned"})
+    public String policy;
+
+    private MonteCarloTreeNode rootNode;
+    private SelectionPolicy selectionPolicy;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        rootNode = new NodePool().newRoot();
+
+        if ("wide".equals(shape)) {
+            expandWide(rootNode, WIDE_DEPTH, random);
+        } else {
+            MonteCarloTreeNode node = rootNode;
+            for (int depth = 0; depth < DEEP_DEPTH; depth++) {
+                node.expand(DEEP_MOVES);
+                scoreChildren(node, random);
+                node = node.getChild(random.nextInt(node.getChildCount()));
+            }
+        }
+
+        selectionPolicy = "ucb1".equals(policy) ? new UCB1SelectionPolicy() : new UCBTunedSelectionPolicy();
+    }
+
+    private static void expandWide(MonteCarloTreeNode node, int depth, Random random) {
+        if (depth == 0)
+            return;
+        node.expand(WIDE_MOVES);
+        scoreChildren(node, random);
+        for (int i = 0; i < node.getChildCount(); i++) {
+            expandWide(node.getChild(i), depth - 1, random);
+        }
+    }
+
+    private static void scoreChildren(MonteCarloTreeNode node, Random random) {
+        for (int i = 0; i < node.getChildCount(); i++) {
+            MonteCarloTreeNode child = node.getChild(i);
+            int visits = 1 + random.nextInt(50);
+            for (int j = 0; j < visits; j++) {
+                int score = random.nextInt(5000);
+                child.updateScore(score);
+                node.updateScore(score);
+            }
+        }
+    }
+
+    @Benchmark
+    public MonteCarloTreeNode descend() {
+        MonteCarloTreeNode node = rootNode;
+        while (!node.isLeafNode()) {
+            node = selectionPolicy.selectChild(node);
+        }
+        return node;
+    }
+}
@@ -0,0 +1,70 @@
+package benchmarks;
+
+import entrants.pacman.chiefsan.*;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Compares the decision quality of the selection policies against the number of simulations per decision.
+ * For every game state a reference search with many simulations estimates the value of every move at the root.
+ * Each policy then searches the same state with smaller budgets, and the comparison reports how often it picks
+ * the reference move and the average value lost against the reference move (regret).
+ * The reference uses UCB1, whose large exploration term gives every root move a well estimated value.
+ * Run with: java -cp target/benchmarks.jar benchmarks.SelectionQualityComparison [referenceSimulations]
+ */
+public final class SelectionQualityComparison {
+
+    private static final int DEFAULT_REFERENCE_SIMULATIONS = 1000;
+    private static final int[] BUDGETS = {10, 25, 50, 100, 200};
+    private static final int STATES = 5;
+    private static final int REPEATS = 5;
+
+    private SelectionQualityComparison() {
+    }
+
+    public static void main(String[] args) {
+        int referenceSimulations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_REFERENCE_SIMULATIONS;
+        String[] names = {"ucb1", "ucb1-tuned"};
+
+        int[][] agreements = new int[names.length][BUDGETS.length];
+        double[][] regrets = new double[names.length][BUDGETS.length];
+
+        for (int state = 0; state < STATES; state++) {
+            Game game = BenchmarkGames.junctionState(BenchmarkGames.DEFAULT_SEED + state, BenchmarkGames.DEFAULT_TICKS);
+
+            MonteCarloTree reference = new MonteCarloTree(game, new NodePool(), new UCB1SelectionPolicy());
+            reference.simulate(referenceSimulations);
+            Map<MOVE, Double> values = new EnumMap<>(MOVE.class);
+            for (MonteCarloTreeNode child: reference.getRootNode().getChildren()) {
+                values.put(child.getMove(), child.getAverageScore());
+            }
+            MOVE referenceMove = reference.bestNode().getMove();
+
+            for (int p = 0; p < names.length; p++) {
+                for (int b = 0; b < BUDGETS.length; b++) {
+                    for (int repeat = 0; repeat < REPEATS; repeat++) {
+                        SelectionPolicy policy = p == 0 ? new UCB1SelectionPolicy() : new UCBTunedSelectionPolicy();
+                        MonteCarloTree tree = new MonteCarloTree(game, new NodePool(), policy);
+                        tree.simulate(BUDGETS[b]);
+                        MOVE move = tree.bestNode().getMove();
+
+                        if (move == referenceMove)
+                            agreements[p][b]++;
+                        regrets[p][b] += values.get(referenceMove) - values.get(move);
+                    }
+                }
+            }
+        }
+
+        System.out.printf("%-12s %12s %10s %12s%n", "policy", "simulations", "agreement", "regret");
+        for (int p = 0; p < names.length; p++) {
+            for (int b = 0; b < BUDGETS.length; b++) {
+                System.out.printf("%-12s %12d %9.1f%% %12.1f%n", names[p], BUDGETS[b],
+                        100.0*agreements[p][b]/(STATES*REPEATS), regrets[p][b]/(STATES*REPEATS));
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package benchmarks;
+
+import entrants.pacman.chiefsan.MonteCarloTree;
+import entrants.pacman.chiefsan.NodePool;
+import entrants.pacman.chiefsan.TranspositionTable;
+import pacman.game.Game;
+
+/**
+ * Reports how much the transposition table shares between the nodes of the tree. Every seeded junction state
+ * is searched with a fixed number of simulations, and the counters of the table are printed: the share of the
+ * backups finding their situation last updated by another node, the visits the situations held over their nodes,
+ * and the number of situations stored and replaced next to the number of nodes of the tree.
+ * Run with: java -cp target/benchmarks.jar benchmarks.TranspositionStatistics [simulations [capacity]]
+ */
+public final class TranspositionStatistics {
+
+    private static final int DEFAULT_SIMULATIONS = 1000;
+    private static final int STATES = 5;
+
+    private TranspositionStatistics() {
+    }
+
+    public static void main(String[] args) {
+        int simulations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIMULATIONS;
+        int capacity = args.length > 1 ? Integer.parseInt(args[1]) : TranspositionTable.DEFAULT_CAPACITY;
+
+        System.out.printf("%6s %8s %10s %9s %14s %8s %12s %8s%n",
+                "state", "nodes", "lookups", "hit rate", "shared visits", "stored", "replacements", "entries");
+
+        for (int state = 0; state < STATES; state++) {
+            Game game = BenchmarkGames.junctionState(BenchmarkGames.DEFAULT_SEED + state, BenchmarkGames.DEFAULT_TICKS);
+            NodePool pool = new NodePool();
+            TranspositionTable table = new TranspositionTable(capacity);
+            pool.setTranspositionTable(table);
+
+            MonteCarloTree tree = new MonteCarloTree(game, pool);
+            tree.simulate(simulations);
+
+            System.out.printf("%6d %8d %10d %8.1f%% %14d %8d %12d %8d%n", state, pool.size(), table.getLookups(),
+                    100 * table.getHitRate(), table.getSharedVisits(), table.getStores(),
+                    table.getReplacements(), table.size());
+        }
+    }
+}
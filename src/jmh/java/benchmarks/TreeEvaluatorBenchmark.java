@@ -0,0 +1,55 @@
+package benchmarks;
+
+import entrants.pacman.chiefsan.MonteCarloTree;
+import entrants.pacman.chiefsan.evaluators.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each tree evaluator over a tree searched from the default junction state. The evaluators only add
+ * bonuses to the root children, which does not change the work of the next invocation.
+ * Run with "-prof gc" to compare the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TreeEvaluatorBenchmark {
+
+    private static final int SIMULATIONS = 200;
+
+    @Param({"1", "2", "3", "4"})
+    public String evaluator;
+
+    private TreeEvaluator treeEvaluator;
+    private MonteCarloTree tree;
+
+    @Setup
+    public void setup() {
+        tree = new MonteCarloTree(BenchmarkGames.junctionState());
+        tree.simulate(SIMULATIONS);
+
+        switch (evaluator) {
+            case "1":
+                treeEvaluator = new Evaluator1();
+                break;
+            case "2":
+                treeEvaluator = new Evaluator2();
+                break;
+            case "3":
+                treeEvaluator = new Evaluator3();
+                break;
+            default:
+                treeEvaluator = new Evaluator4();
+        }
+    }
+
+    @Benchmark
+    public MonteCarloTree evaluate() {
+        treeEvaluator.evaluateTree(tree);
+        return tree;
+    }
+}
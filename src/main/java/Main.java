@@ -4,21 +4,41 @@ import examples.StarterGhostComm.Inky;
 import examples.StarterGhostComm.Pinky;
 import examples.StarterGhostComm.Sue;
 //import examples.StarterPacManOneJunction.MyPacMan;
+import entrants.pacman.chiefsan.DecisionLatency;
 import entrants.pacman.chiefsan.MyPacMan;
+import entrants.pacman.chiefsan.RolloutTrace;
 import pacman.Executor;
 import pacman.controllers.IndividualGhostController;
 import pacman.controllers.MASController;
 import pacman.game.Constants.*;
 
+import java.nio.file.Paths;
 import java.util.EnumMap;
 
 
 /**
- * Execution
+ * Execution. Runs the headless tournament by default, or a single visual game with the argument "visual".
+ * The other arguments are passed to the tournament
  */
 public class Main {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+
+        if (args.length == 0 || !"visual".equals(args[0])) {
+            Tournament.main(args);
+        } else {
+            runVisual();
+        }
+
+        if (RolloutTrace.ENABLED) {
+            RolloutTrace.getDefault().drainTo(Paths.get(System.getProperty("chiefsan.trace.file", "rollouts.csv")));
+        }
+        if (DecisionLatency.ENABLED) {
+            DecisionLatency.getDefault().print(System.out);
+        }
+    }
+
+    private static void runVisual() {
 
         Executor executor = new Executor.Builder()
                 .setVisual(true)
@@ -0,0 +1,199 @@
+import entrants.pacman.chiefsan.MyPacMan;
+import pacman.controllers.MASController;
+import pacman.controllers.PacmanController;
+import pacman.controllers.examples.po.POCommGhosts;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+import pacman.game.comms.BasicMessenger;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Headless tournament playing many games of MyPacMan against a ghost team on all the cores.
+ * Every worker plays one game at a time with its own controller instances, the result of every game is streamed
+ * as a line of comma separated values as soon as the game ends, and the statistics of the score, the ticks
+ * survived and the level reached are printed at the end, headed by the throughput in games per hour.
+ * Run with: java -cp ... Tournament [games [threads [ghosts [budget [seed]]]]]
+ * where ghosts is "pocomm" or the class name of a MASController with a constructor without arguments,
+ * and budget the milliseconds given to every decision, 0 for untimed decisions.
+ * The games are set up as by Executor: the ghosts communicate through a BasicMessenger, pac-man sees the copy
+ * of the game partially observable to pac-man and every ghost the copy partially observable to that ghost.
+ * Excluded from the submission in pom.xml, like Main
+ */
+public final class Tournament {
+
+    private static final int DEFAULT_GAMES = 1000;
+    private static final String DEFAULT_GHOSTS = "pocomm";
+    private static final long DEFAULT_BUDGET = 0;
+    private static final long DEFAULT_SEED = 42;
+    private static final int TICK_LIMIT = 24000;
+    private static final double[] PERCENTILES = {5, 25, 50, 75, 95};
+
+    /**
+     * Result of a game
+     */
+    private static final class Result {
+        private final int game;
+        private final long seed;
+        private final int score;
+        private final int ticks;
+        private final int level;
+
+        private Result(int game, long seed, int score, int ticks, int level) {
+            this.game = game;
+            this.seed = seed;
+            this.score = score;
+            this.ticks = ticks;
+            this.level = level;
+        }
+    }
+
+    private Tournament() {
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        if (games <= 0)
+            throw new IllegalArgumentException("Number of games " + games + " not positive");
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        String ghosts = args.length > 2 ? args[2] : DEFAULT_GHOSTS;
+        long budget = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_BUDGET;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : DEFAULT_SEED;
+
+        run(games, threads, MyPacMan::new, getGhostTeam(ghosts), budget, seed, System.out);
+    }
+
+    /**
+     * Gets the factory of a ghost team
+     * @param name "pocomm" or the class name of a MASController with a constructor without arguments
+     * @return factory creating a new team for every game
+     */
+    private static Supplier<MASController> getGhostTeam(String name) {
+        if (DEFAULT_GHOSTS.equals(name))
+            return () -> new POCommGhosts(50);
+
+        return () -> {
+            try {
+                return (MASController) Class.forName(name).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Cannot create the ghost team " + name, e);
+            }
+        };
+    }
+
+    /**
+     * Plays the games of the tournament and prints their results
+     * @param games number of games, positive
+     * @param threads number of games played at once
+     * @param pacman factory of the pac-man controller, called for every game
+     * @param ghosts factory of the ghost team, called for every game
+     * @param budget milliseconds given to every decision, 0 for untimed decisions
+     * @param seed seed of the seeds of the games
+     * @param out stream receiving the results
+     */
+    public static void run(int games, int threads, Supplier<? extends PacmanController> pacman,
+                           Supplier<MASController> ghosts, long budget, long seed, PrintStream out)
+            throws InterruptedException, ExecutionException {
+        if (games <= 0)
+            throw new IllegalArgumentException("Number of games " + games + " not positive");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CompletionService<Result> completion = new ExecutorCompletionService<>(executor);
+        Random random = new Random(seed);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < games; i++) {
+            int game = i;
+            long gameSeed = random.nextLong();
+            completion.submit(() -> play(game, gameSeed, pacman.get(), ghosts.get(), budget));
+        }
+
+        int[] scores = new int[games];
+        int[] ticks = new int[games];
+        int[] levels = new int[games];
+        out.println("game,seed,score,ticks,level");
+        try {
+            for (int i = 0; i < games; i++) {
+                Result result = completion.take().get();
+                scores[i] = result.score;
+                ticks[i] = result.ticks;
+                levels[i] = result.level;
+                out.println(result.game + "," + result.seed + "," + result.score + "," + result.ticks + "," + result.level);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        double hours = (System.nanoTime() - start) / 3.6e12;
+        out.println();
+        out.printf("%.0f games/hour (%d games on %d threads in %.1f s)%n",
+                games / hours, games, threads, hours * 3600);
+        out.printf("%-6s %10s %10s %10s %10s %10s %10s %10s %10s%n", "", "mean", "stddev", "min", "p5", "p25",
+                "p50", "p75", "p95");
+        printStatistics(out, "score", scores);
+        printStatistics(out, "ticks", ticks);
+        printStatistics(out, "level", levels);
+    }
+
+    /**
+     * Plays a game with isolated controllers, without display, until the game ends or the tick limit.
+     * MyPacMan is seeded with the seed of the game, so that its decisions are reproducible in untimed games.
+     * The ghost team is copied partially observable, so that it hands every ghost game.copy(ghost).
+     * The controllers are called one after the other, each with a window of the full budget, so that pac-man
+     * and the ghosts get the same time as when Executor calls them concurrently
+     * @return result of the game
+     */
+    private static Result play(int number, long seed, PacmanController pacman, MASController ghosts, long budget) {
+        Game game = new Game(seed, new BasicMessenger());
+        MASController team = ghosts.copy(true);
+        if (pacman instanceof MyPacMan) {
+            ((MyPacMan) pacman).setSeed(seed);
+        }
+
+        while (!game.gameOver() && game.getTotalTime() < TICK_LIMIT) {
+            MOVE pacmanMove = pacman.getMove(game.copy(Game.PACMAN), getTimeDue(budget));
+            EnumMap<GHOST, MOVE> ghostMoves = team.getMove(game.copy(), getTimeDue(budget));
+            game.advanceGame(pacmanMove, ghostMoves);
+        }
+
+        return new Result(number, seed, game.getScore(), game.getTotalTime(), game.getCurrentLevel());
+    }
+
+    /**
+     * Gets the time by which a controller called now has to return its move
+     * @param budget milliseconds given to every decision, 0 for untimed decisions
+     * @return time in milliseconds, -1 for untimed decisions
+     */
+    private static long getTimeDue(long budget) {
+        return budget > 0 ? System.currentTimeMillis() + budget : -1;
+    }
+
+    private static void printStatistics(PrintStream out, String name, int[] values) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        double mean = 0;
+        for (int value: sorted) {
+            mean += value;
+        }
+        mean /= sorted.length;
+
+        double variance = 0;
+        for (int value: sorted) {
+            variance += (value - mean) * (value - mean);
+        }
+        double stddev = sorted.length > 1 ? Math.sqrt(variance / (sorted.length - 1)) : 0;
+
+        out.printf("%-6s %10.1f %10.1f %10d", name, mean, stddev, sorted[0]);
+        for (double percentile: PERCENTILES) {
+            out.printf(" %10d", sorted[(int) Math.ceil(percentile / 100 * sorted.length) - 1]);
+        }
+        out.println();
+    }
+}
@@ -0,0 +1,768 @@
+package entrants.pacman.chiefsan;
+
+import entrants.pacman.chiefsan.evaluators.HeuristicLeafEvaluator;
+import entrants.pacman.chiefsan.evaluators.LeafEvaluator;
+import pacman.game.Constants;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+import pacman.game.internal.Maze;
+
+import java.util.SplittableRandom;
+
+/**
+ * Rollout engine playing many independent simulations in lockstep. The state of every simulation (a lane) is held
+ * in struct-of-arrays form: one array per field indexed by lane, and lane * 4 + ghost for the ghosts, so every
+ * phase of a tick is a tight loop over the lanes touching a few flat arrays instead of chasing the pointers of
+ * a Game per rollout. The rules of the game are those of FastForwardModel, pac-man follows the rules of
+ * JunctionRolloutPolicy and the ghosts those of SimulationGhosts.
+ * <p>
+ * Lanes cut by the rollout horizon are scored by a port of HeuristicLeafEvaluator on the arrays of the lanes,
+ * so only horizons scored by a HeuristicLeafEvaluator are supported.
+ * Not thread safe: every tree playing batched rollouts has its own engine
+ */
+public class BatchedRollouts {
+
+    public static final int DEFAULT_LANES = 32;
+    private static final double DEFAULT_CHASE_PROBABILITY = 0.9;
+    private static final int DEFAULT_POWER_PILL_DISTANCE = 15;
+    private static final int DEFAULT_MINIMUM_DISTANCE = 20;
+    private static final int TICK_CAP = 10000;
+    private static final GHOST[] GHOST_TYPES = GHOST.values();
+    private static final int GHOSTS = GHOST_TYPES.length;
+    private static final MOVE[] MOVES = MOVE.values();
+    private static final int DIRECTIONS = 4;
+    private static final int NEUTRAL = 4;
+
+    private static final byte RUNNING = 0;
+    private static final RolloutTrace.Termination[] TERMINATIONS = {null,
+            RolloutTrace.Termination.GAME_OVER, RolloutTrace.Termination.LEVEL_CLEARED,
+            RolloutTrace.Termination.HORIZON, RolloutTrace.Termination.TICK_CAP};
+    private static final byte GAME_OVER = 1;
+    private static final byte LEVEL_CLEARED = 2;
+    private static final byte HORIZON = 3;
+    private static final byte CAPPED = 4;
+    private static final byte IDLE = 5;
+
+    private final int lanes;
+    private final RolloutHorizon horizon;
+    private final SplittableRandom random;
+    private final HeuristicLeafEvaluator leafEvaluator;
+    private RolloutTrace trace;
+
+    // maze of the current batch
+    private Maze maze;
+    private int mazeIndex;
+    private MazeTables tables;
+    private int[] pillNodes;
+    private int[] powerPillNodes;
+    private int pillWords;
+    private int powerPillWords;
+    private int level;
+    private int edibleTime;
+    private int eatenLairTime;
+    private final int[] resetLairTimes;
+
+    // one entry per lane
+    private final int[] pacmanNodes;
+    private final byte[] pacmanMoves;
+    private final byte[] pacmanChoices;
+    private final int[] lives;
+    private final boolean[] extraLives;
+    private final int[] scores;
+    private final int[] levelTimes;
+    private final int[] totalTimes;
+    private final int[] multipliers;
+    private final int[] remainingPills;
+    private final boolean[] powerPillEaten;
+    private final int[] ticks;
+    private final int[] junctions;
+    private final byte[] status;
+
+    // one entry per lane and ghost
+    private final int[] ghostNodes;
+    private final byte[] ghostMoves;
+    private final byte[] ghostChoices;
+    private final int[] edibleTimes;
+    private final int[] lairTimes;
+
+    // pill bitsets, one block of words per lane
+    private long[] pills;
+    private long[] powerPills;
+
+    /**
+     * Constructor
+     * @param lanes number of simulations played in lockstep
+     * @param horizon horizon at which the simulations are cut
+     * @param random stream of the random ghost moves and reversals, owned by this engine
+     * @throws IllegalArgumentException if the horizon scores the cut rollouts with another leaf evaluator than
+     *                                  HeuristicLeafEvaluator
+     */
+    public BatchedRollouts(int lanes, RolloutHorizon horizon, SplittableRandom random) {
+        LeafEvaluator evaluator = horizon.getLeafEvaluator();
+        if (evaluator != null && evaluator.getClass() != HeuristicLeafEvaluator.class)
+            throw new IllegalArgumentException("Cut rollouts cannot be scored by "
+                    + evaluator.getClass().getSimpleName() + " in batched rollouts");
+
+        this.leafEvaluator = (HeuristicLeafEvaluator) evaluator;
+        this.lanes = lanes;
+        this.horizon = horizon;
+        this.random = random;
+        this.trace = RolloutTrace.ENABLED ? RolloutTrace.getDefault() : null;
+        this.resetLairTimes = new int[GHOSTS];
+
+        this.pacmanNodes = new int[lanes];
+        this.pacmanMoves = new byte[lanes];
+        this.pacmanChoices = new byte[lanes];
+        this.lives = new int[lanes];
+        this.extraLives = new boolean[lanes];
+        this.scores = new int[lanes];
+        this.levelTimes = new int[lanes];
+        this.totalTimes = new int[lanes];
+        this.multipliers = new int[lanes];
+        this.remainingPills = new int[lanes];
+        this.powerPillEaten = new boolean[lanes];
+        this.ticks = new int[lanes];
+        this.junctions = new int[lanes];
+        this.status = new byte[lanes];
+
+        this.ghostNodes = new int[lanes * GHOSTS];
+        this.ghostMoves = new byte[lanes * GHOSTS];
+        this.ghostChoices = new byte[lanes * GHOSTS];
+        this.edibleTimes = new int[lanes * GHOSTS];
+        this.lairTimes = new int[lanes * GHOSTS];
+    }
+
+    public BatchedRollouts(int lanes, RolloutHorizon horizon) {
+        this(lanes, horizon, new SplittableRandom());
+    }
+
+    public BatchedRollouts() {
+        this(DEFAULT_LANES, RolloutHorizon.FULL);
+    }
+
+    /**
+     * Sets the trace recording the rollouts. Only used when tracing is enabled
+     * @param trace trace, null to record nothing
+     */
+    public void setTrace(RolloutTrace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * Gets the number of simulations played in lockstep
+     * @return number of lanes
+     */
+    public int getLanes() {
+        return lanes;
+    }
+
+    /**
+     * Plays the rollouts of a leaf on all the lanes
+     * @param leaf game state of the leaf
+     * @return average score at the end of the rollouts
+     */
+    public int evaluate(Game leaf) {
+        prepare(leaf);
+        for (int lane = 0; lane < lanes; lane++) {
+            load(lane, leaf);
+        }
+        run();
+
+        long sum = 0;
+        for (int lane = 0; lane < lanes; lane++) {
+            sum += scores[lane];
+        }
+        return (int) (sum / lanes);
+    }
+
+    /**
+     * Plays the rollouts of several leaves at once, the lanes being shared evenly between the leaves
+     * @param leaves game states of the leaves, of the same maze and level as the first one
+     * @param count number of leaves, at most the number of lanes
+     * @param results average score of the rollouts of every leaf, filled up to count
+     * @return the given results
+     */
+    public int[] evaluate(Game[] leaves, int count, int[] results) {
+        if (count > lanes)
+            throw new IllegalArgumentException(count + " leaves for " + lanes + " lanes");
+
+        int perLeaf = lanes / count;
+        prepare(leaves[0]);
+        for (int lane = 0; lane < perLeaf * count; lane++) {
+            load(lane, leaves[lane / perLeaf]);
+        }
+        for (int lane = perLeaf * count; lane < lanes; lane++) {
+            status[lane] = IDLE;
+        }
+        run();
+
+        for (int leaf = 0; leaf < count; leaf++) {
+            long sum = 0;
+            for (int lane = leaf * perLeaf; lane < (leaf + 1) * perLeaf; lane++) {
+                sum += scores[lane];
+            }
+            results[leaf] = (int) (sum / perLeaf);
+        }
+        return results;
+    }
+
+    /**
+     * Loads game states into the lanes, to be advanced tick by tick with given moves instead of being played
+     * out, for a comparison with FastForwardModel
+     * @param games game states, of the same maze and level as the first one
+     * @param count number of game states, at most the number of lanes; the lanes beyond are left idle
+     */
+    public void load(Game[] games, int count) {
+        if (count > lanes)
+            throw new IllegalArgumentException(count + " games for " + lanes + " lanes");
+
+        prepare(games[0]);
+        for (int lane = 0; lane < lanes; lane++) {
+            if (lane < count)
+                load(lane, games[lane]);
+            else
+                status[lane] = IDLE;
+        }
+    }
+
+    /**
+     * Advances every lane still running by one tick with the given moves, following the rules of
+     * FastForwardModel.advance
+     * @param pacmanMoves move of pac-man of every lane
+     * @param ghostMoves moves of the ghosts of every lane indexed by ordinal, null or NEUTRAL for a ghost
+     *                   that does not decide
+     * @param reverse true if the ghosts reverse at random this tick
+     */
+    public void advance(MOVE[] pacmanMoves, MOVE[][] ghostMoves, boolean reverse) {
+        for (int lane = 0; lane < lanes; lane++) {
+            if (status[lane] != RUNNING)
+                continue;
+
+            pacmanChoices[lane] = (byte) pacmanMoves[lane].ordinal();
+            for (int ghost = 0; ghost < GHOSTS; ghost++) {
+                MOVE move = ghostMoves[lane][ghost];
+                ghostChoices[lane * GHOSTS + ghost] = (byte) (move == null ? NEUTRAL : move.ordinal());
+            }
+        }
+
+        movePacman();
+        moveGhosts(reverse ? 1 : 0);
+        feast();
+        updateTimes();
+    }
+
+    /**
+     * Indicates whether a lane is still running
+     * @param lane lane
+     * @return true if the rollout of the lane has not ended; false otherwise
+     */
+    public boolean isRunning(int lane) {
+        return status[lane] == RUNNING;
+    }
+
+    /**
+     * Encodes the state of a lane in the layout of GameStateCodec
+     * @param lane lane
+     * @param state array of GameStateCodec.getLength() words, overwritten
+     * @return the given array
+     */
+    public long[] encode(int lane, long[] state) {
+        state[0] = GameStateCodec.packPacman(pacmanNodes[lane], MOVES[pacmanMoves[lane]], lives[lane], mazeIndex,
+                level, totalTimes[lane]);
+        state[1] = GameStateCodec.packScore(scores[lane], levelTimes[lane]);
+        for (int ghost = 0; ghost < GHOSTS; ghost++) {
+            int g = lane * GHOSTS + ghost;
+            state[2 + ghost] = GameStateCodec.packGhost(ghostNodes[g], MOVES[ghostMoves[g]], edibleTimes[g],
+                    lairTimes[g]);
+        }
+        System.arraycopy(pills, lane * pillWords, state, GameStateCodec.getPillOffset(), pillWords);
+        System.arraycopy(powerPills, lane * powerPillWords, state,
+                GameStateCodec.getPowerPillOffset(pillNodes.length), powerPillWords);
+        return state;
+    }
+
+    /**
+     * Sets up the tables of the maze and level of a batch
+     */
+    private void prepare(Game game) {
+        mazeIndex = game.getMazeIndex();
+        if (maze != game.getCurrentMaze()) {
+            maze = game.getCurrentMaze();
+            tables = MazeTables.get(maze);
+            pillNodes = maze.pillIndices;
+            powerPillNodes = maze.powerPillIndices;
+            pillWords = (pillNodes.length + 63) >>> 6;
+            powerPillWords = (powerPillNodes.length + 63) >>> 6;
+            if (pills == null || pills.length < lanes * pillWords)
+                pills = new long[lanes * pillWords];
+            if (powerPills == null || powerPills.length < lanes * powerPillWords)
+                powerPills = new long[lanes * powerPillWords];
+        }
+
+        level = game.getCurrentLevel();
+        double reduction = level % Constants.LEVEL_RESET_REDUCTION;
+        edibleTime = (int) (Constants.EDIBLE_TIME * Math.pow(Constants.EDIBLE_TIME_REDUCTION, reduction));
+        eatenLairTime = (int) (Constants.COMMON_LAIR_TIME * Math.pow(Constants.LAIR_REDUCTION, reduction));
+        for (GHOST ghost: GHOST_TYPES) {
+            resetLairTimes[ghost.ordinal()] = (int) (ghost.initialLairTime * Math.pow(Constants.LAIR_REDUCTION, reduction));
+        }
+    }
+
+    /**
+     * Loads a game state into a lane. A state that is over, or in another maze or level than the batch,
+     * is not played and keeps its score
+     */
+    private void load(int lane, Game game) {
+        scores[lane] = game.getScore();
+        ticks[lane] = 0;
+        junctions[lane] = 0;
+        if (game.gameOver()) {
+            status[lane] = GAME_OVER;
+            return;
+        }
+        if (game.getCurrentMaze() != maze || game.getCurrentLevel() != level) {
+            status[lane] = LEVEL_CLEARED;
+            return;
+        }
+
+        status[lane] = RUNNING;
+        pacmanNodes[lane] = game.getPacmanCurrentNodeIndex();
+        pacmanMoves[lane] = (byte) game.getPacmanLastMoveMade().ordinal();
+        lives[lane] = game.getPacmanNumberOfLivesRemaining();
+        extraLives[lane] = scores[lane] >= Constants.EXTRA_LIFE_SCORE;
+        levelTimes[lane] = game.getCurrentLevelTime();
+        totalTimes[lane] = game.getTotalTime();
+        multipliers[lane] = 1;
+
+        for (GHOST ghost: GHOST_TYPES) {
+            int g = lane * GHOSTS + ghost.ordinal();
+            ghostNodes[g] = game.getGhostCurrentNodeIndex(ghost);
+            MOVE lastMove = game.getGhostLastMoveMade(ghost);
+            ghostMoves[g] = (byte) (lastMove == null ? NEUTRAL : lastMove.ordinal());
+            edibleTimes[g] = game.getGhostEdibleTime(ghost);
+            lairTimes[g] = game.getGhostLairTime(ghost);
+        }
+
+        int remaining = 0;
+        int base = lane * pillWords;
+        for (int w = 0; w < pillWords; w++) {
+            pills[base + w] = 0L;
+        }
+        for (int i = 0; i < pillNodes.length; i++) {
+            if (!Boolean.FALSE.equals(game.isPillStillAvailable(i))) {
+                pills[base + (i >>> 6)] |= 1L << i;
+                remaining++;
+            }
+        }
+        base = lane * powerPillWords;
+        for (int w = 0; w < powerPillWords; w++) {
+            powerPills[base + w] = 0L;
+        }
+        for (int i = 0; i < powerPillNodes.length; i++) {
+            if (!Boolean.FALSE.equals(game.isPowerPillStillAvailable(i))) {
+                powerPills[base + (i >>> 6)] |= 1L << i;
+                remaining++;
+            }
+        }
+        remainingPills[lane] = remaining;
+    }
+
+    /**
+     * Advances all the running lanes tick by tick until every lane has ended
+     */
+    private void run() {
+        int running = countRunning();
+        while (running > 0) {
+            for (int lane = 0; lane < lanes; lane++) {
+                if (status[lane] != RUNNING)
+                    continue;
+                if (horizon.isReached(ticks[lane], junctions[lane])) {
+                    status[lane] = HORIZON;
+                    if (leafEvaluator != null)
+                        scores[lane] = evaluateCut(lane);
+                    running--;
+                } else if (ticks[lane] >= TICK_CAP) {
+                    status[lane] = CAPPED;
+                    running--;
+                }
+            }
+
+            decidePacman();
+            decideGhosts();
+            movePacman();
+            moveGhosts(Constants.GHOST_REVERSAL);
+            feast();
+            updateTimes();
+            running = countRunning();
+        }
+
+        if (RolloutTrace.ENABLED && trace != null) {
+            for (int lane = 0; lane < lanes; lane++) {
+                if (status[lane] != IDLE)
+                    trace.record(ticks[lane], TERMINATIONS[status[lane]], scores[lane]);
+            }
+        }
+    }
+
+    /**
+     * Applies the rules of HeuristicLeafEvaluator to a lane cut by the horizon
+     * @param lane lane
+     * @return estimated score at the end of the rollout
+     */
+    private int evaluateCut(int lane) {
+        int pacman = pacmanNodes[lane];
+        double survival = lives[lane] / (lives[lane] + 1.0);
+        double value = scores[lane];
+        int dangerDistance = leafEvaluator.getDangerDistance();
+
+        for (int g = lane * GHOSTS; g < (lane + 1) * GHOSTS; g++) {
+            if (lairTimes[g] > 0 || ghostNodes[g] < 0)
+                continue;
+
+            int distance = tables.getShortestPathDistance(pacman, ghostNodes[g]);
+            if (edibleTimes[g] > 0) {
+                if (edibleTimes[g] > distance)
+                    value += leafEvaluator.getEdibleGhostValue();
+            } else if (distance < dangerDistance) {
+                survival *= (double) distance / dangerDistance;
+            }
+        }
+
+        int activePowerPills = 0;
+        for (int w = 0; w < powerPillWords; w++) {
+            activePowerPills += Long.bitCount(powerPills[lane * powerPillWords + w]);
+        }
+        value += survival * (leafEvaluator.getPillValue() * (remainingPills[lane] - activePowerPills)
+                + leafEvaluator.getPowerPillValue() * activePowerPills);
+
+        return (int) value;
+    }
+
+    private int countRunning() {
+        int running = 0;
+        for (int lane = 0; lane < lanes; lane++) {
+            if (status[lane] == RUNNING)
+                running++;
+        }
+        return running;
+    }
+
+    private void decidePacman() {
+        for (int lane = 0; lane < lanes; lane++) {
+            if (status[lane] != RUNNING)
+                continue;
+
+            int node = pacmanNodes[lane];
+            int direction = NEUTRAL;
+            if (!tables.isJunction(node))
+                direction = tables.getCorridorDirection(node, pacmanMoves[lane]);
+            if (direction == NEUTRAL)
+                direction = getJunctionDirection(lane, node);
+            pacmanChoices[lane] = (byte) direction;
+        }
+    }
+
+    /**
+     * Applies the rules of JunctionRolloutPolicy on a junction: flee from a close ghost,
+     * else chase the closest edible ghost, else go to the closest pill
+     */
+    private int getJunctionDirection(int lane, int node) {
+        int target = -1;
+        int minDistance = Integer.MAX_VALUE;
+
+        for (int g = lane * GHOSTS; g < (lane + 1) * GHOSTS; g++) {
+            if (ghostNodes[g] < 0 || lairTimes[g] > 0)
+                continue;
+
+            int distance = tables.getShortestPathDistance(node, ghostNodes[g]);
+            if (edibleTimes[g] == 0) {
+                if (distance < DEFAULT_MINIMUM_DISTANCE)
+                    return getDirection(node, ghostNodes[g], NEUTRAL, false);
+            } else if (distance < minDistance) {
+                minDistance = distance;
+                target = ghostNodes[g];
+            }
+        }
+
+        if (target == -1) {
+            for (int w = 0; w < pillWords; w++) {
+                long bits = pills[lane * pillWords + w];
+                while (bits != 0) {
+                    int pillNode = pillNodes[w << 6 | Long.numberOfTrailingZeros(bits)];
+                    bits &= bits - 1;
+                    int distance = tables.getShortestPathDistance(node, pillNode);
+                    if (distance < minDistance) {
+                        minDistance = distance;
+                        target = pillNode;
+                    }
+                }
+            }
+            for (int w = 0; w < powerPillWords; w++) {
+                long bits = powerPills[lane * powerPillWords + w];
+                while (bits != 0) {
+                    int powerPillNode = powerPillNodes[w << 6 | Long.numberOfTrailingZeros(bits)];
+                    bits &= bits - 1;
+                    int distance = tables.getShortestPathDistance(node, powerPillNode);
+                    if (distance < minDistance) {
+                        minDistance = distance;
+                        target = powerPillNode;
+                    }
+                }
+            }
+        }
+
+        if (target == -1)
+            return pacmanMoves[lane];
+        return getDirection(node, target, NEUTRAL, true);
+    }
+
+    /**
+     * Finds the direction towards or away from a target along the shortest paths
+     * @param node node to move from
+     * @param target target node
+     * @param forbidden direction not to take, NEUTRAL for none
+     * @param towards true to move towards the target; false to move away from it
+     * @return ordinal of the move, that of NEUTRAL if no move is possible
+     */
+    private int getDirection(int node, int target, int forbidden, boolean towards) {
+        int best = NEUTRAL;
+        int bestDistance = towards ? Integer.MAX_VALUE : -1;
+
+        for (int d = 0; d < DIRECTIONS; d++) {
+            int neighbour = tables.getNeighbour(node, d);
+            if (neighbour == -1 || d == forbidden)
+                continue;
+
+            int distance = tables.getShortestPathDistance(neighbour, target);
+            if (towards ? distance < bestDistance : distance > bestDistance) {
+                bestDistance = distance;
+                best = d;
+            }
+        }
+        return best;
+    }
+
+    private int getRandomDirection(int node, int forbidden) {
+        int count = 0;
+        for (int d = 0; d < DIRECTIONS; d++) {
+            if (d != forbidden && tables.getNeighbour(node, d) != -1)
+                count++;
+        }
+        if (count == 0)
+            return NEUTRAL;
+
+        int choice = random.nextInt(count);
+        for (int d = 0; d < DIRECTIONS; d++) {
+            if (d != forbidden && tables.getNeighbour(node, d) != -1 && choice-- == 0)
+                return d;
+        }
+        return NEUTRAL;
+    }
+
+    private static int opposite(int direction) {
+        return direction >= DIRECTIONS ? NEUTRAL : (direction + 2) & 3;
+    }
+
+    /**
+     * Applies the rules of SimulationGhosts to the ghosts that have to take a decision
+     */
+    private void decideGhosts() {
+        for (int lane = 0; lane < lanes; lane++) {
+            if (status[lane] != RUNNING)
+                continue;
+
+            int pacman = pacmanNodes[lane];
+            boolean nearPowerPill = isNearPowerPill(lane, pacman);
+
+            for (int g = lane * GHOSTS; g < (lane + 1) * GHOSTS; g++) {
+                int node = ghostNodes[g];
+                ghostChoices[g] = NEUTRAL;
+                if (lairTimes[g] > 0 || node < 0 || !tables.isJunction(node)
+                        || (edibleTimes[g] != 0 && edibleTimes[g] % Constants.GHOST_SPEED_REDUCTION == 0))
+                    continue;
+
+                int back = opposite(ghostMoves[g]);
+                if (edibleTimes[g] > 0 || nearPowerPill)
+                    ghostChoices[g] = (byte) getDirection(node, pacman, back, false);
+                else if (random.nextDouble() < DEFAULT_CHASE_PROBABILITY)
+                    ghostChoices[g] = (byte) getDirection(node, pacman, back, true);
+                else
+                    ghostChoices[g] = (byte) getRandomDirection(node, back);
+            }
+        }
+    }
+
+    private boolean isNearPowerPill(int lane, int pacman) {
+        for (int w = 0; w < powerPillWords; w++) {
+            long bits = powerPills[lane * powerPillWords + w];
+            while (bits != 0) {
+                int powerPillNode = powerPillNodes[w << 6 | Long.numberOfTrailingZeros(bits)];
+                bits &= bits - 1;
+                if (tables.getShortestPathDistance(powerPillNode, pacman) < DEFAULT_POWER_PILL_DISTANCE)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private void movePacman() {
+        for (int lane = 0; lane < lanes; lane++) {
+            if (status[lane] != RUNNING)
+                continue;
+
+            int node = pacmanNodes[lane];
+            int direction = pacmanChoices[lane];
+            if (tables.getNeighbour(node, direction) == -1)
+                direction = tables.getNeighbour(node, pacmanMoves[lane]) == -1 ? NEUTRAL : pacmanMoves[lane];
+            pacmanMoves[lane] = (byte) direction;
+            if (direction != NEUTRAL)
+                node = tables.getNeighbour(node, direction);
+            pacmanNodes[lane] = node;
+            powerPillEaten[lane] = false;
+            ticks[lane]++;
+
+            int pill = tables.getPillIndex(node);
+            int word = lane * pillWords + (pill >>> 6);
+            if (pill >= 0 && (pills[word] & 1L << pill) != 0) {
+                pills[word] &= ~(1L << pill);
+                remainingPills[lane]--;
+                scores[lane] += Constants.PILL;
+            }
+
+            int powerPill = tables.getPowerPillIndex(node);
+            word = lane * powerPillWords + (powerPill >>> 6);
+            if (powerPill >= 0 && (powerPills[word] & 1L << powerPill) != 0) {
+                powerPills[word] &= ~(1L << powerPill);
+                remainingPills[lane]--;
+                scores[lane] += Constants.POWER_PILL;
+                multipliers[lane] = 1;
+                for (int g = lane * GHOSTS; g < (lane + 1) * GHOSTS; g++) {
+                    edibleTimes[g] = lairTimes[g] == 0 ? edibleTime : 0;
+                }
+                powerPillEaten[lane] = true;
+            }
+        }
+    }
+
+    /**
+     * Moves the ghosts of every running lane
+     * @param reversal probability that the ghosts of a lane reverse at random
+     */
+    private void moveGhosts(double reversal) {
+        for (int lane = 0; lane < lanes; lane++) {
+            if (status[lane] != RUNNING)
+                continue;
+
+            // as in Game, the ghosts never reverse in the first ticks of a level
+            if ((powerPillEaten[lane] || random.nextDouble() < reversal) && levelTimes[lane] > 1) {
+                boolean reversed = false;
+                for (int g = lane * GHOSTS; g < (lane + 1) * GHOSTS; g++) {
+                    if (lairTimes[g] == 0 && ghostNodes[g] >= 0 && ghostMoves[g] != NEUTRAL) {
+                        ghostMoves[g] = (byte) opposite(ghostMoves[g]);
+                        ghostNodes[g] = tables.getNeighbour(ghostNodes[g], ghostMoves[g]);
+                        reversed = true;
+                    }
+                }
+                if (reversed)
+                    continue;
+            }
+
+            for (int g = lane * GHOSTS; g < (lane + 1) * GHOSTS; g++) {
+                int node = ghostNodes[g];
+                if (lairTimes[g] != 0 || node < 0
+                        || (edibleTimes[g] != 0 && edibleTimes[g] % Constants.GHOST_SPEED_REDUCTION == 0))
+                    continue;
+
+                int last = ghostMoves[g];
+                int direction = ghostChoices[g];
+                if (direction == NEUTRAL || tables.getNeighbour(node, direction) == -1 || direction == opposite(last)) {
+                    direction = tables.getNeighbour(node, last) != -1 ? last : getRandomDirection(node, opposite(last));
+                }
+                ghostMoves[g] = (byte) direction;
+                ghostNodes[g] = tables.getNeighbour(node, direction);
+            }
+        }
+    }
+
+    private void feast() {
+        for (int lane = 0; lane < lanes; lane++) {
+            if (status[lane] != RUNNING)
+                continue;
+
+            boolean eaten = false;
+            for (int g = lane * GHOSTS; g < (lane + 1) * GHOSTS; g++) {
+                if (ghostNodes[g] < 0)
+                    continue;
+                int distance = tables.getShortestPathDistance(pacmanNodes[lane], ghostNodes[g]);
+                if (distance > Constants.EAT_DISTANCE || distance == -1)
+                    continue;
+
+                if (edibleTimes[g] > 0) {
+                    scores[lane] += Constants.GHOST_EAT_SCORE * multipliers[lane];
+                    multipliers[lane] *= 2;
+                    edibleTimes[g] = 0;
+                    lairTimes[g] = eatenLairTime;
+                    ghostNodes[g] = maze.lairNodeIndex;
+                    ghostMoves[g] = NEUTRAL;
+                } else {
+                    eaten = true;
+                    break;
+                }
+            }
+
+            if (eaten) {
+                if (--lives[lane] <= 0)
+                    status[lane] = GAME_OVER;
+                else
+                    levelReset(lane);
+                continue;
+            }
+
+            for (int g = lane * GHOSTS; g < (lane + 1) * GHOSTS; g++) {
+                if (edibleTimes[g] > 0)
+                    edibleTimes[g]--;
+            }
+        }
+    }
+
+    private void levelReset(int lane) {
+        pacmanNodes[lane] = maze.initialPacManNodeIndex;
+        pacmanMoves[lane] = (byte) MOVE.LEFT.ordinal();
+        multipliers[lane] = 1;
+        for (int ghost = 0; ghost < GHOSTS; ghost++) {
+            int g = lane * GHOSTS + ghost;
+            ghostNodes[g] = maze.lairNodeIndex;
+            ghostMoves[g] = NEUTRAL;
+            edibleTimes[g] = 0;
+            lairTimes[g] = resetLairTimes[ghost];
+        }
+    }
+
+    private void updateTimes() {
+        for (int lane = 0; lane < lanes; lane++) {
+            if (status[lane] != RUNNING)
+                continue;
+
+            for (int g = lane * GHOSTS; g < (lane + 1) * GHOSTS; g++) {
+                if (lairTimes[g] > 0 && --lairTimes[g] == 0)
+                    ghostNodes[g] = maze.initialGhostNodeIndex;
+            }
+            if (!extraLives[lane] && scores[lane] >= Constants.EXTRA_LIFE_SCORE) {
+                extraLives[lane] = true;
+                lives[lane]++;
+            }
+            totalTimes[lane]++;
+            levelTimes[lane]++;
+            if (tables.isJunction(pacmanNodes[lane]))
+                junctions[lane]++;
+
+            if (totalTimes[lane] + 1 > Constants.MAX_TIME) {
+                status[lane] = GAME_OVER;
+                scores[lane] += lives[lane] * Constants.AWARD_LIFE_LEFT;
+            } else if (remainingPills[lane] == 0 || levelTimes[lane] >= Constants.LEVEL_LIMIT) {
+                status[lane] = LEVEL_CLEARED;
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package entrants.pacman.chiefsan;
+
+import pacman.controllers.MASController;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+import java.util.Map;
+
+/**
+ * Ghost model playing a ghost controller of the framework
+ */
+public class ControllerGhostModel implements GhostModel {
+
+    private MASController controller;
+
+    /**
+     * Constructor
+     * @param controller controller moving the ghosts
+     */
+    public ControllerGhostModel(MASController controller) {
+        this.controller = controller;
+    }
+
+    @Override
+    public Map<GHOST, MOVE> getMoves(Game game) {
+        return controller.getMove(game, 0);
+    }
+}
@@ -0,0 +1,214 @@
+package entrants.pacman.chiefsan;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency of the decisions of MyPacMan, recorded into a lock-free histogram per decision path together with the
+ * number of decisions that missed timeDue or came within the near miss margin of it.
+ * The histograms have 16 buckets per power of two of nanoseconds, so the percentiles are within about 6% of the
+ * recorded latencies, while the maximum is exact. Recording is enabled with -Dchiefsan.latency=true. ENABLED is
+ * a constant, so when recording is disabled the JIT removes the timing code from the decisions altogether
+ */
+public class DecisionLatency {
+
+    public static final boolean ENABLED = Boolean.getBoolean("chiefsan.latency");
+    public static final long DEFAULT_NEAR_MISS = 2;
+
+    /**
+     * Paths a decision can take in MyPacMan
+     */
+    public enum Path {
+        GHOST_ESCAPE, EDIBLE_CHASE, NON_JUNCTION, MCTS
+    }
+
+    private static final Path[] PATHS = Path.values();
+    private static final double[] PERCENTILES = {50, 99, 99.9};
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS;
+
+    // counters of every path: decisions, timed decisions, misses, near misses, maximum
+    private static final int COUNT = 0;
+    private static final int TIMED = 1;
+    private static final int MISSES = 2;
+    private static final int NEAR_MISSES = 3;
+    private static final int MAX = 4;
+    private static final int COUNTERS = 5;
+
+    private final long nearMiss;
+    private final AtomicLongArray buckets; // BUCKETS buckets per path
+    private final AtomicLongArray counters; // COUNTERS counters per path
+
+    /**
+     * Constructor
+     * @param nearMiss milliseconds before timeDue within which a decision made in time counts as a near miss
+     */
+    public DecisionLatency(long nearMiss) {
+        this.nearMiss = nearMiss;
+        this.buckets = new AtomicLongArray(PATHS.length * BUCKETS);
+        this.counters = new AtomicLongArray(PATHS.length * COUNTERS);
+    }
+
+    public DecisionLatency() {
+        this(DEFAULT_NEAR_MISS);
+    }
+
+    /**
+     * Gets the latency recorder shared by all the controllers of the process
+     * @return shared recorder
+     */
+    public static DecisionLatency getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    private static class Holder {
+        private static final DecisionLatency DEFAULT = new DecisionLatency(
+                Long.getLong("chiefsan.latency.nearMiss", DEFAULT_NEAR_MISS));
+    }
+
+    /**
+     * Records a decision. Safe to call from several threads at once
+     * @param path path the decision took
+     * @param nanos time taken by the decision
+     * @param timeDue time (in milliseconds) by which the move had to be returned, non-positive if untimed
+     */
+    public void record(Path path, long nanos, long timeDue) {
+        int counter = path.ordinal() * COUNTERS;
+        buckets.incrementAndGet(path.ordinal() * BUCKETS + getBucket(nanos));
+        counters.incrementAndGet(counter + COUNT);
+
+        long max;
+        do {
+            max = counters.get(counter + MAX);
+        } while (nanos > max && !counters.compareAndSet(counter + MAX, max, nanos));
+
+        if (timeDue > 0) {
+            counters.incrementAndGet(counter + TIMED);
+            long slack = timeDue - System.currentTimeMillis();
+            if (slack < 0) {
+                counters.incrementAndGet(counter + MISSES);
+            } else if (slack < nearMiss) {
+                counters.incrementAndGet(counter + NEAR_MISSES);
+            }
+        }
+    }
+
+    /**
+     * Gets the bucket of a latency: the latencies under 16 ns have their own bucket, the others are split
+     * into 16 buckets per power of two
+     * @param nanos latency
+     * @return index of the bucket
+     */
+    private static int getBucket(long nanos) {
+        if (nanos < SUB_BUCKETS)
+            return (int) Math.max(0, nanos);
+
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+        return (shift + 1) << SUB_BUCKET_BITS | (int) (nanos >>> shift & SUB_BUCKETS - 1);
+    }
+
+    /**
+     * Gets the highest latency of a bucket
+     * @param bucket index of the bucket
+     * @return latency in nanoseconds
+     */
+    private static long getUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        return ((long) (SUB_BUCKETS + (bucket & SUB_BUCKETS - 1)) << shift) + (1L << shift) - 1;
+    }
+
+    /**
+     * Gets the number of decisions recorded for a path
+     * @param path decision path
+     * @return number of decisions
+     */
+    public long getCount(Path path) {
+        return counters.get(path.ordinal() * COUNTERS + COUNT);
+    }
+
+    /**
+     * Gets the number of timed decisions of a path returned after timeDue
+     * @param path decision path
+     * @return number of misses
+     */
+    public long getMisses(Path path) {
+        return counters.get(path.ordinal() * COUNTERS + MISSES);
+    }
+
+    /**
+     * Gets the number of timed decisions of a path returned in time but within the near miss margin of timeDue
+     * @param path decision path
+     * @return number of near misses
+     */
+    public long getNearMisses(Path path) {
+        return counters.get(path.ordinal() * COUNTERS + NEAR_MISSES);
+    }
+
+    /**
+     * Gets the highest latency recorded for a path
+     * @param path decision path
+     * @return latency in nanoseconds, 0 if nothing was recorded
+     */
+    public long getMax(Path path) {
+        return counters.get(path.ordinal() * COUNTERS + MAX);
+    }
+
+    /**
+     * Gets a percentile of the latencies of a path, as the upper bound of the bucket holding it
+     * @param path decision path
+     * @param percentile percentile, between 0 and 100
+     * @return latency in nanoseconds, 0 if nothing was recorded
+     */
+    public long getPercentile(Path path, double percentile) {
+        int first = path.ordinal() * BUCKETS;
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += buckets.get(first + i);
+        }
+        if (total == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(first + i);
+            if (seen >= rank)
+                return Math.min(getUpperBound(i), getMax(path));
+        }
+        return getMax(path);
+    }
+
+    /**
+     * Prints a line per decision path with the number of decisions, the latency percentiles and maximum in
+     * milliseconds, and the misses and near misses over the timed decisions.
+     * Can be called at any time, while decisions are still being recorded
+     * @param out stream to print to
+     */
+    public void print(PrintStream out) {
+        out.printf("%-13s %10s %10s %10s %10s %10s %10s %10s%n", "path", "decisions", "p50", "p99", "p99.9", "max",
+                "misses", "near(" + nearMiss + ")");
+        for (Path path: PATHS) {
+            out.printf("%-13s %10d", path, getCount(path));
+            for (double percentile: PERCENTILES) {
+                out.printf(" %10.3f", getPercentile(path, percentile) / 1e6);
+            }
+            out.printf(" %10.3f %10d %10d%n", getMax(path) / 1e6, getMisses(path), getNearMisses(path));
+        }
+    }
+
+    /**
+     * Discards everything recorded so far. Decisions recorded meanwhile may be partly discarded
+     */
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+}
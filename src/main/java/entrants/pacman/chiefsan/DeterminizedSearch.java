@@ -0,0 +1,49 @@
+package entrants.pacman.chiefsan;
+
+import pacman.game.Game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Root parallel Monte Carlo Tree Search over determinizations. Every thread searches its own tree on a game state
+ * sampled from the ghost belief, so that the hidden ghosts are where they are likely to be instead of in the lair,
+ * and the statistics of the root children are merged over the determinizations.
+ * One determinization is sampled per thread, so the search costs no more than a root parallel search
+ */
+public class DeterminizedSearch extends RootParallelSearch {
+
+    private GhostBelief belief;
+
+    /**
+     * Constructor
+     * @param belief belief over the ghosts, observed by the controller every tick
+     * @param threads number of determinizations searched in parallel
+     */
+    public DeterminizedSearch(GhostBelief belief, int threads) {
+        super(threads);
+        this.belief = belief;
+    }
+
+    public DeterminizedSearch(GhostBelief belief) {
+        this(belief, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    protected List<MonteCarloTree> createTrees(Game game, int threads) {
+        List<MonteCarloTree> trees = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            trees.add(new MonteCarloTree(belief.determinize(game), getNodePool(i).newRoot(),
+                    new UCBTunedSelectionPolicy(), true));
+        }
+        return trees;
+    }
+
+    /**
+     * Gets the belief the determinizations are sampled from
+     * @return belief
+     */
+    public GhostBelief getBelief() {
+        return belief;
+    }
+}
@@ -0,0 +1,439 @@
+package entrants.pacman.chiefsan;
+
+import pacman.game.Constants;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+import pacman.game.internal.Maze;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Forward model of a level of the game on primitive arrays, reproducing Game.advanceGame without the
+ * bookkeeping of partial observability, the messenger and the generic structures of the framework.
+ * Pac-man and ghost movement, ghost reversals, pills and power pills, edible and lair times, eating ghosts,
+ * losing lives and the extra life follow the rules of the framework. The model ends at the end of the level
+ * instead of moving to the next maze, as the rollouts do.
+ * <p>
+ * A model is loaded from a game and then advanced in place, so a rollout allocates nothing.
+ * The multiplier of the ghosts eaten since the last power pill is not exposed by Game and starts at 1 when loading
+ */
+public class FastForwardModel {
+
+    private static final GHOST[] GHOSTS = GHOST.values();
+    private static final MOVE[] MOVES = MOVE.values();
+    private static final int DIRECTIONS = 4;
+    private static final double GHOST_REVERSAL = Constants.GHOST_REVERSAL;
+
+    private final Maze maze;
+    private final MazeTables tables;
+    private final SplittableRandom random;
+    private final int mazeIndex;
+    private final int pillCount;
+    private final int powerPillCount;
+    private final MOVE[] choices;
+
+    private int pacmanNode;
+    private MOVE pacmanMove;
+    private int lives;
+    private boolean extraLife;
+    private int score;
+    private int level;
+    private int totalTime;
+    private int levelTime;
+    private int ghostEatMultiplier;
+    private final int[] ghostNodes;
+    private final MOVE[] ghostMoves;
+    private final int[] edibleTimes;
+    private final int[] lairTimes;
+    private final long[] pills;
+    private final long[] powerPills;
+    private int remainingPills;
+
+    private boolean gameOver;
+    private boolean levelCleared;
+    private boolean pacmanEaten;
+    private boolean powerPillEaten;
+
+    /**
+     * Constructor
+     * @param game game whose maze the model plays, the model is loaded from it
+     * @param random stream of the random ghost reversals and of the random ghost moves of the framework,
+     *               owned by this model
+     */
+    public FastForwardModel(Game game, SplittableRandom random) {
+        this.maze = game.getCurrentMaze();
+        this.tables = MazeTables.get(maze);
+        this.random = random;
+        this.mazeIndex = game.getMazeIndex();
+        this.pillCount = maze.pillIndices.length;
+        this.powerPillCount = maze.powerPillIndices.length;
+        this.choices = new MOVE[DIRECTIONS];
+        this.ghostNodes = new int[GHOSTS.length];
+        this.ghostMoves = new MOVE[GHOSTS.length];
+        this.edibleTimes = new int[GHOSTS.length];
+        this.lairTimes = new int[GHOSTS.length];
+        this.pills = new long[(pillCount + 63) >>> 6];
+        this.powerPills = new long[(powerPillCount + 63) >>> 6];
+        load(game);
+    }
+
+    public FastForwardModel(Game game) {
+        this(game, new SplittableRandom());
+    }
+
+    /**
+     * Loads the state of a game of the same maze
+     * @param game game state
+     */
+    public void load(Game game) {
+        pacmanNode = game.getPacmanCurrentNodeIndex();
+        pacmanMove = game.getPacmanLastMoveMade();
+        lives = game.getPacmanNumberOfLivesRemaining();
+        score = game.getScore();
+        extraLife = score >= Constants.EXTRA_LIFE_SCORE;
+        level = game.getCurrentLevel();
+        totalTime = game.getTotalTime();
+        levelTime = game.getCurrentLevelTime();
+        ghostEatMultiplier = 1;
+
+        for (GHOST ghost: GHOSTS) {
+            int g = ghost.ordinal();
+            ghostNodes[g] = game.getGhostCurrentNodeIndex(ghost);
+            ghostMoves[g] = game.getGhostLastMoveMade(ghost);
+            edibleTimes[g] = game.getGhostEdibleTime(ghost);
+            lairTimes[g] = game.getGhostLairTime(ghost);
+        }
+
+        Arrays.fill(pills, 0L);
+        Arrays.fill(powerPills, 0L);
+        remainingPills = 0;
+        for (int i = 0; i < pillCount; i++) {
+            if (!Boolean.FALSE.equals(game.isPillStillAvailable(i))) {
+                pills[i >>> 6] |= 1L << i;
+                remainingPills++;
+            }
+        }
+        for (int i = 0; i < powerPillCount; i++) {
+            if (!Boolean.FALSE.equals(game.isPowerPillStillAvailable(i))) {
+                powerPills[i >>> 6] |= 1L << i;
+                remainingPills++;
+            }
+        }
+
+        gameOver = game.gameOver();
+        levelCleared = false;
+        pacmanEaten = false;
+        powerPillEaten = false;
+    }
+
+    /**
+     * Copies the state of another model of the same maze
+     * @param other model to copy
+     */
+    public void copyFrom(FastForwardModel other) {
+        pacmanNode = other.pacmanNode;
+        pacmanMove = other.pacmanMove;
+        lives = other.lives;
+        extraLife = other.extraLife;
+        score = other.score;
+        level = other.level;
+        totalTime = other.totalTime;
+        levelTime = other.levelTime;
+        ghostEatMultiplier = other.ghostEatMultiplier;
+        System.arraycopy(other.ghostNodes, 0, ghostNodes, 0, ghostNodes.length);
+        System.arraycopy(other.ghostMoves, 0, ghostMoves, 0, ghostMoves.length);
+        System.arraycopy(other.edibleTimes, 0, edibleTimes, 0, edibleTimes.length);
+        System.arraycopy(other.lairTimes, 0, lairTimes, 0, lairTimes.length);
+        System.arraycopy(other.pills, 0, pills, 0, pills.length);
+        System.arraycopy(other.powerPills, 0, powerPills, 0, powerPills.length);
+        remainingPills = other.remainingPills;
+        gameOver = other.gameOver;
+        levelCleared = other.levelCleared;
+        pacmanEaten = other.pacmanEaten;
+        powerPillEaten = other.powerPillEaten;
+    }
+
+    /**
+     * Advances the model by one tick, the ghosts reversing at random as in the framework
+     * @param pacmanMove move of pac-man
+     * @param ghostMoves moves of the ghosts indexed by ordinal, null or NEUTRAL for a ghost that does not decide
+     */
+    public void advance(MOVE pacmanMove, MOVE[] ghostMoves) {
+        advance(pacmanMove, ghostMoves, random.nextDouble() < GHOST_REVERSAL);
+    }
+
+    /**
+     * Advances the model by one tick
+     * @param pacmanMove move of pac-man
+     * @param ghostMoves moves of the ghosts indexed by ordinal, null or NEUTRAL for a ghost that does not decide
+     * @param reverse true if the ghosts reverse at random this tick
+     */
+    public void advance(MOVE pacmanMove, MOVE[] ghostMoves, boolean reverse) {
+        if (gameOver || levelCleared)
+            return;
+
+        updatePacman(pacmanMove);
+        if (!reverseGhosts(reverse || powerPillEaten)) {
+            updateGhosts(ghostMoves);
+        }
+        feast();
+        updateLairTimes();
+        if (!extraLife && score >= Constants.EXTRA_LIFE_SCORE) {
+            extraLife = true;
+            lives++;
+        }
+        totalTime++;
+        levelTime++;
+        checkLevelState();
+    }
+
+    private void updatePacman(MOVE move) {
+        MOVE corrected = MOVE.NEUTRAL;
+        if (tables.getNeighbour(pacmanNode, move) != -1)
+            corrected = move;
+        else if (tables.getNeighbour(pacmanNode, pacmanMove) != -1)
+            corrected = pacmanMove;
+
+        pacmanMove = corrected;
+        if (corrected != MOVE.NEUTRAL)
+            pacmanNode = tables.getNeighbour(pacmanNode, corrected);
+
+        powerPillEaten = false;
+        int pill = tables.getPillIndex(pacmanNode);
+        if (pill >= 0 && (pills[pill >>> 6] & 1L << pill) != 0) {
+            pills[pill >>> 6] &= ~(1L << pill);
+            remainingPills--;
+            score += Constants.PILL;
+        }
+
+        int powerPill = tables.getPowerPillIndex(pacmanNode);
+        if (powerPill >= 0 && (powerPills[powerPill >>> 6] & 1L << powerPill) != 0) {
+            powerPills[powerPill >>> 6] &= ~(1L << powerPill);
+            remainingPills--;
+            score += Constants.POWER_PILL;
+            ghostEatMultiplier = 1;
+            int edibleTime = (int) (Constants.EDIBLE_TIME
+                    * Math.pow(Constants.EDIBLE_TIME_REDUCTION, level % Constants.LEVEL_RESET_REDUCTION));
+            for (int g = 0; g < GHOSTS.length; g++) {
+                edibleTimes[g] = lairTimes[g] == 0 ? edibleTime : 0;
+            }
+            powerPillEaten = true;
+        }
+    }
+
+    /**
+     * Reverses the ghosts out of the lair, except in the first ticks of a level as Game does
+     * @param reverse true if the ghosts reverse at random or pac-man has eaten a power pill
+     * @return true if a ghost has reversed, in which case the ghosts do not move this tick
+     */
+    private boolean reverseGhosts(boolean reverse) {
+        if (!reverse || levelTime <= 1)
+            return false;
+
+        boolean reversed = false;
+        for (int g = 0; g < GHOSTS.length; g++) {
+            if (lairTimes[g] == 0 && ghostNodes[g] >= 0 && ghostMoves[g] != MOVE.NEUTRAL) {
+                ghostMoves[g] = ghostMoves[g].opposite();
+                ghostNodes[g] = tables.getNeighbour(ghostNodes[g], ghostMoves[g]);
+                reversed = true;
+            }
+        }
+        return reversed;
+    }
+
+    private void updateGhosts(MOVE[] moves) {
+        for (int g = 0; g < GHOSTS.length; g++) {
+            if (lairTimes[g] != 0 || ghostNodes[g] < 0)
+                continue;
+            if (edibleTimes[g] != 0 && edibleTimes[g] % Constants.GHOST_SPEED_REDUCTION == 0)
+                continue;
+
+            MOVE move = getGhostMove(g, moves == null ? null : moves[g]);
+            ghostMoves[g] = move;
+            ghostNodes[g] = tables.getNeighbour(ghostNodes[g], move);
+        }
+    }
+
+    /**
+     * Corrects the move of a ghost as the framework does: the move if it is possible and not a reversal,
+     * else the last move if it is possible, else a random move other than going back
+     */
+    private MOVE getGhostMove(int ghost, MOVE move) {
+        int node = ghostNodes[ghost];
+        MOVE last = ghostMoves[ghost];
+
+        if (move != null && tables.getNeighbour(node, move) != -1 && move != last.opposite())
+            return move;
+        if (tables.getNeighbour(node, last) != -1)
+            return last;
+
+        int count = 0;
+        for (int m = 0; m < DIRECTIONS; m++) {
+            if (MOVES[m] != last.opposite() && tables.getNeighbour(node, MOVES[m]) != -1)
+                choices[count++] = MOVES[m];
+        }
+        return choices[random.nextInt(count)];
+    }
+
+    private void feast() {
+        pacmanEaten = false;
+
+        for (int g = 0; g < GHOSTS.length; g++) {
+            if (ghostNodes[g] < 0)
+                continue; // position unknown
+            int distance = tables.getShortestPathDistance(pacmanNode, ghostNodes[g]);
+            if (distance > Constants.EAT_DISTANCE || distance == -1)
+                continue;
+
+            if (edibleTimes[g] > 0) {
+                score += Constants.GHOST_EAT_SCORE * ghostEatMultiplier;
+                ghostEatMultiplier *= 2;
+                edibleTimes[g] = 0;
+                lairTimes[g] = (int) (Constants.COMMON_LAIR_TIME
+                        * Math.pow(Constants.LAIR_REDUCTION, level % Constants.LEVEL_RESET_REDUCTION));
+                ghostNodes[g] = maze.lairNodeIndex;
+                ghostMoves[g] = MOVE.NEUTRAL;
+            } else {
+                lives--;
+                pacmanEaten = true;
+                if (lives <= 0)
+                    gameOver = true;
+                else
+                    levelReset();
+                return;
+            }
+        }
+
+        for (int g = 0; g < GHOSTS.length; g++) {
+            if (edibleTimes[g] > 0)
+                edibleTimes[g]--;
+        }
+    }
+
+    private void updateLairTimes() {
+        for (int g = 0; g < GHOSTS.length; g++) {
+            if (lairTimes[g] > 0 && --lairTimes[g] == 0)
+                ghostNodes[g] = maze.initialGhostNodeIndex;
+        }
+    }
+
+    private void levelReset() {
+        pacmanNode = maze.initialPacManNodeIndex;
+        pacmanMove = MOVE.LEFT;
+        ghostEatMultiplier = 1;
+        for (GHOST ghost: GHOSTS) {
+            int g = ghost.ordinal();
+            ghostNodes[g] = maze.lairNodeIndex;
+            ghostMoves[g] = MOVE.NEUTRAL;
+            edibleTimes[g] = 0;
+            lairTimes[g] = (int) (ghost.initialLairTime
+                    * Math.pow(Constants.LAIR_REDUCTION, level % Constants.LEVEL_RESET_REDUCTION));
+        }
+    }
+
+    private void checkLevelState() {
+        if (totalTime + 1 > Constants.MAX_TIME) {
+            gameOver = true;
+            score += lives * Constants.AWARD_LIFE_LEFT;
+        } else if (remainingPills == 0 || levelTime >= Constants.LEVEL_LIMIT) {
+            levelCleared = true;
+        }
+    }
+
+    /**
+     * Encodes the state of the model in the layout of GameStateCodec
+     * @param state array of GameStateCodec.getLength() words, overwritten
+     * @return the given array
+     */
+    public long[] encode(long[] state) {
+        state[0] = GameStateCodec.packPacman(pacmanNode, pacmanMove, lives, mazeIndex, level, totalTime);
+        state[1] = GameStateCodec.packScore(score, levelTime);
+        for (int g = 0; g < GHOSTS.length; g++) {
+            state[2 + g] = GameStateCodec.packGhost(ghostNodes[g], ghostMoves[g], edibleTimes[g], lairTimes[g]);
+        }
+        System.arraycopy(pills, 0, state, GameStateCodec.getPillOffset(), pills.length);
+        System.arraycopy(powerPills, 0, state, GameStateCodec.getPowerPillOffset(pillCount), powerPills.length);
+        return state;
+    }
+
+    public int getPacmanNode() {
+        return pacmanNode;
+    }
+
+    public MOVE getPacmanLastMove() {
+        return pacmanMove;
+    }
+
+    public int getLives() {
+        return lives;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getTotalTime() {
+        return totalTime;
+    }
+
+    public int getLevelTime() {
+        return levelTime;
+    }
+
+    public int getGhostNode(GHOST ghost) {
+        return ghostNodes[ghost.ordinal()];
+    }
+
+    public MOVE getGhostLastMove(GHOST ghost) {
+        return ghostMoves[ghost.ordinal()];
+    }
+
+    public int getGhostEdibleTime(GHOST ghost) {
+        return edibleTimes[ghost.ordinal()];
+    }
+
+    public int getGhostLairTime(GHOST ghost) {
+        return lairTimes[ghost.ordinal()];
+    }
+
+    /**
+     * Gets the number of pills and power pills left in the maze
+     * @return number of pills
+     */
+    public int getRemainingPills() {
+        return remainingPills;
+    }
+
+    /**
+     * Indicates whether a ghost has to choose a move in the next tick, as Game.doesGhostRequireAction does
+     * @param ghost ghost
+     * @return true if the ghost is out of the lair on a junction; false otherwise
+     */
+    public boolean doesGhostRequireAction(GHOST ghost) {
+        int g = ghost.ordinal();
+        return lairTimes[g] == 0 && tables.isJunction(ghostNodes[g])
+                && (edibleTimes[g] == 0 || edibleTimes[g] % Constants.GHOST_SPEED_REDUCTION != 0);
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * Indicates whether the level has ended, by clearing the pills or running out of time
+     * @return true if the level has ended; false otherwise
+     */
+    public boolean isLevelCleared() {
+        return levelCleared;
+    }
+
+    public boolean wasPacManEaten() {
+        return pacmanEaten;
+    }
+
+    public boolean wasPowerPillEaten() {
+        return powerPillEaten;
+    }
+}
@@ -0,0 +1,281 @@
+package entrants.pacman.chiefsan;
+
+import pacman.game.Constants;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+import pacman.game.info.GameInfo;
+import pacman.game.internal.Ghost;
+import pacman.game.internal.Maze;
+import pacman.game.internal.PacMan;
+
+import java.util.Arrays;
+
+/**
+ * Compact encoding of the decision relevant state of a game into a long[], so that snapshots,
+ * transposition keys and replay records can share one cheap representation instead of copying Game objects.
+ * <p>
+ * Layout of a state:
+ * <ul>
+ *     <li>word 0: pac-man node (16 bits), pac-man last move (4), lives (8), maze index (4), level (8),
+ *     total time (24)</li>
+ *     <li>word 1: score (32), level time (32)</li>
+ *     <li>one word per ghost: node (16), last move (4), edible time (16), lair time (16)</li>
+ *     <li>the pill bitset, then the power pill bitset, 64 pills per word</li>
+ * </ul>
+ * Nodes and timers are stored as signed 16 bit values, so that the -1 of an unknown node survives the encoding.
+ * Moves are stored as their ordinal plus one, 0 standing for an unknown move.
+ * Pills whose state is unknown under partial observability are encoded as still available
+ */
+public final class GameStateCodec {
+
+    private static final GHOST[] GHOSTS = GHOST.values();
+    private static final MOVE[] MOVES = MOVE.values();
+    private static final int PACMAN = 0;
+    private static final int SCORE = 1;
+    private static final int FIRST_GHOST = 2;
+    private static final int FIRST_PILL = FIRST_GHOST + GHOSTS.length;
+
+    private GameStateCodec() {
+    }
+
+    /**
+     * Gets the number of words of the states of a maze
+     * @param maze maze
+     * @return length of the long[] holding a state
+     */
+    public static int getLength(Maze maze) {
+        return FIRST_PILL + words(maze.pillIndices.length) + words(maze.powerPillIndices.length);
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    /**
+     * Encodes a game state into a new array
+     * @param game game state
+     * @return encoded state
+     */
+    public static long[] encode(Game game) {
+        return encode(game, new long[getLength(game.getCurrentMaze())]);
+    }
+
+    /**
+     * Encodes a game state into the given array, without allocating
+     * @param game game state
+     * @param state array of at least getLength() words for the current maze, overwritten
+     * @return the given array
+     */
+    public static long[] encode(Game game, long[] state) {
+        state[PACMAN] = packPacman(game.getPacmanCurrentNodeIndex(), game.getPacmanLastMoveMade(),
+                game.getPacmanNumberOfLivesRemaining(), game.getMazeIndex(), game.getCurrentLevel(), game.getTotalTime());
+        state[SCORE] = packScore(game.getScore(), game.getCurrentLevelTime());
+
+        for (GHOST ghost: GHOSTS) {
+            state[FIRST_GHOST + ghost.ordinal()] = packGhost(game.getGhostCurrentNodeIndex(ghost),
+                    game.getGhostLastMoveMade(ghost), game.getGhostEdibleTime(ghost), game.getGhostLairTime(ghost));
+        }
+
+        int pills = game.getNumberOfPills();
+        int firstPowerPill = getPowerPillOffset(pills);
+        Arrays.fill(state, FIRST_PILL, getLength(game.getCurrentMaze()), 0L);
+        for (int i = 0; i < pills; i++) {
+            if (!Boolean.FALSE.equals(game.isPillStillAvailable(i)))
+                state[FIRST_PILL + (i >>> 6)] |= 1L << i;
+        }
+        for (int i = 0; i < game.getNumberOfPowerPills(); i++) {
+            if (!Boolean.FALSE.equals(game.isPowerPillStillAvailable(i)))
+                state[firstPowerPill + (i >>> 6)] |= 1L << i;
+        }
+
+        return state;
+    }
+
+    /**
+     * Decodes a state into a game, through the GameInfo of a template game.
+     * GameInfo carries neither the score nor the level nor the times, which are taken from the template,
+     * so the template has to be at the same tick of the same game as the encoded state: only the positions,
+     * the timers of the ghosts, the lives and the pills are rebuilt from the state
+     * @param state encoded state
+     * @param template game at the maze, level, score and times the state was encoded at
+     * @return game in the encoded state
+     * @throws IllegalArgumentException if the maze, level, score or times of the template differ from the state
+     */
+    public static Game decode(long[] state, Game template) {
+        if (getMazeIndex(state) != template.getMazeIndex()
+                || getLevel(state) != template.getCurrentLevel()
+                || getScore(state) != template.getScore()
+                || getTotalTime(state) != template.getTotalTime()
+                || getLevelTime(state) != template.getCurrentLevelTime())
+            throw new IllegalArgumentException("State of maze " + getMazeIndex(state) + ", level " + getLevel(state)
+                    + ", score " + getScore(state) + " at tick " + getTotalTime(state) + " decoded in maze "
+                    + template.getMazeIndex() + ", level " + template.getCurrentLevel() + ", score "
+                    + template.getScore() + " at tick " + template.getTotalTime());
+
+        GameInfo info = template.getPopulatedGameInfo();
+        info.setPacman(new PacMan(getPacmanNode(state), getPacmanLastMove(state), getLives(state),
+                getScore(state) >= Constants.EXTRA_LIFE_SCORE));
+        info.fixGhosts((ghost) -> new Ghost(ghost, getGhostNode(state, ghost), getGhostEdibleTime(state, ghost),
+                getGhostLairTime(state, ghost), getGhostLastMove(state, ghost)));
+
+        int pills = template.getNumberOfPills();
+        for (int i = 0; i < pills; i++) {
+            info.setPillAtIndex(i, isPillAvailable(state, i));
+        }
+        int firstPowerPill = getPowerPillOffset(pills);
+        for (int i = 0; i < template.getNumberOfPowerPills(); i++) {
+            info.setPowerPillAtIndex(i, (state[firstPowerPill + (i >>> 6)] & 1L << i) != 0);
+        }
+
+        return template.getGameFromInfo(info);
+    }
+
+    /**
+     * Indicates whether two encoded states are the same
+     * @param a encoded state
+     * @param b encoded state
+     * @return true if the states are the same; false otherwise
+     */
+    public static boolean equals(long[] a, long[] b) {
+        return Arrays.equals(a, b);
+    }
+
+    /**
+     * Computes a 64 bit hash of an encoded state, mixing every word with the finalizer of MurmurHash3
+     * @param state encoded state
+     * @return hash
+     */
+    public static long hash(long[] state) {
+        long hash = state.length;
+        for (long word: state) {
+            hash = mix(hash ^ mix(word)) * 0x9E3779B97F4A7C15L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xFF51AFD7ED558CCDL;
+        x ^= x >>> 33;
+        x *= 0xC4CEB9FE1A85EC53L;
+        x ^= x >>> 33;
+        return x;
+    }
+
+    /**
+     * Packs the word of pac-man and the game progress
+     * @return word 0 of a state
+     */
+    static long packPacman(int node, MOVE lastMove, int lives, int mazeIndex, int level, int totalTime) {
+        return (node & 0xFFFFL)
+                | (long) encodeMove(lastMove) << 16
+                | (lives & 0xFFL) << 20
+                | (mazeIndex & 0xFL) << 28
+                | (level & 0xFFL) << 32
+                | (totalTime & 0xFFFFFFL) << 40;
+    }
+
+    /**
+     * Packs the word of the score and the level time
+     * @return word 1 of a state
+     */
+    static long packScore(int score, int levelTime) {
+        return (long) score << 32 | (levelTime & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Packs the word of a ghost
+     * @return word of the ghost in a state
+     */
+    static long packGhost(int node, MOVE lastMove, int edibleTime, int lairTime) {
+        return (node & 0xFFFFL)
+                | (long) encodeMove(lastMove) << 16
+                | (edibleTime & 0xFFFFL) << 20
+                | (lairTime & 0xFFFFL) << 36;
+    }
+
+    /**
+     * Gets the index of the first word of the pill bitset, which is followed by the power pill bitset
+     * @return index of the word
+     */
+    static int getPillOffset() {
+        return FIRST_PILL;
+    }
+
+    /**
+     * Gets the index of the first word of the power pill bitset
+     * @param pills number of pills of the maze
+     * @return index of the word
+     */
+    static int getPowerPillOffset(int pills) {
+        return FIRST_PILL + words(pills);
+    }
+
+    private static int encodeMove(MOVE move) {
+        return move == null ? 0 : move.ordinal() + 1;
+    }
+
+    private static MOVE decodeMove(long bits) {
+        int move = (int) (bits & 0xF);
+        return move == 0 ? null : MOVES[move - 1];
+    }
+
+    public static int getPacmanNode(long[] state) {
+        return (short) state[PACMAN];
+    }
+
+    public static MOVE getPacmanLastMove(long[] state) {
+        return decodeMove(state[PACMAN] >>> 16);
+    }
+
+    public static int getLives(long[] state) {
+        return (int) (state[PACMAN] >>> 20 & 0xFF);
+    }
+
+    public static int getMazeIndex(long[] state) {
+        return (int) (state[PACMAN] >>> 28 & 0xF);
+    }
+
+    public static int getLevel(long[] state) {
+        return (int) (state[PACMAN] >>> 32 & 0xFF);
+    }
+
+    public static int getTotalTime(long[] state) {
+        return (int) (state[PACMAN] >>> 40);
+    }
+
+    public static int getScore(long[] state) {
+        return (int) (state[SCORE] >>> 32);
+    }
+
+    public static int getLevelTime(long[] state) {
+        return (int) state[SCORE];
+    }
+
+    public static int getGhostNode(long[] state, GHOST ghost) {
+        return (short) state[FIRST_GHOST + ghost.ordinal()];
+    }
+
+    public static MOVE getGhostLastMove(long[] state, GHOST ghost) {
+        return decodeMove(state[FIRST_GHOST + ghost.ordinal()] >>> 16);
+    }
+
+    public static int getGhostEdibleTime(long[] state, GHOST ghost) {
+        return (short) (state[FIRST_GHOST + ghost.ordinal()] >>> 20);
+    }
+
+    public static int getGhostLairTime(long[] state, GHOST ghost) {
+        return (short) (state[FIRST_GHOST + ghost.ordinal()] >>> 36);
+    }
+
+    /**
+     * Indicates whether a pill is still available in an encoded state
+     * @param state encoded state
+     * @param pill pill index
+     * @return true if the pill is available or its state unknown; false otherwise
+     */
+    public static boolean isPillAvailable(long[] state, int pill) {
+        return (state[FIRST_PILL + (pill >>> 6)] & 1L << pill) != 0;
+    }
+}
@@ -0,0 +1,126 @@
+package entrants.pacman.chiefsan;
+
+import pacman.game.Constants;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+import pacman.game.info.GameInfo;
+import pacman.game.internal.Ghost;
+import pacman.game.internal.Maze;
+import prediction.GhostLocation;
+import prediction.fast.GhostPredictionsFast;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+
+/**
+ * Belief over the positions of the ghosts that pac-man cannot see, kept over a game.
+ * The belief is observed at the start of every tick and advanced at its end, and in between it samples
+ * determinized game states in which the hidden ghosts are placed where they are likely to be.
+ * Not thread safe: the states are sampled by the thread deciding the move
+ */
+public class GhostBelief {
+
+    private static final GHOST[] GHOSTS = GHOST.values();
+
+    private GhostPredictionsFast predictions;
+    private Maze maze;
+    private final int[] edibleTimes;
+    private final boolean[] spotted;
+    private final int[] lairTimes;
+
+    public GhostBelief() {
+        this.edibleTimes = new int[GHOSTS.length];
+        this.spotted = new boolean[GHOSTS.length];
+        this.lairTimes = new int[GHOSTS.length];
+    }
+
+    /**
+     * Updates the belief with the ghosts seen in the current game state.
+     * The belief is reset when a new maze starts or pac-man has been eaten, as the ghosts go back to the lair.
+     * A ghost eaten by pac-man is forgotten and counted down in the lair, then observed leaving it
+     * @param game current game state
+     */
+    public void observe(Game game) {
+        if (maze != game.getCurrentMaze() || game.wasPacManEaten()) {
+            maze = game.getCurrentMaze();
+            predictions = new GhostPredictionsFast(maze);
+            predictions.preallocate();
+            Arrays.fill(edibleTimes, 0);
+            Arrays.fill(spotted, false);
+            Arrays.fill(lairTimes, 0);
+        }
+
+        for (GHOST ghost: GHOSTS) {
+            int i = ghost.ordinal();
+            if (edibleTimes[i] > 0)
+                edibleTimes[i]--;
+
+            if (game.wasGhostEaten(ghost)) {
+                edibleTimes[i] = 0;
+                spotted[i] = false;
+                lairTimes[i] = (int) (Constants.COMMON_LAIR_TIME * Math.pow(Constants.LAIR_REDUCTION,
+                        game.getCurrentLevel() % Constants.LEVEL_RESET_REDUCTION));
+                continue;
+            }
+
+            int node = game.getGhostCurrentNodeIndex(ghost);
+            if (node != -1) {
+                predictions.observe(ghost, node, game.getGhostLastMoveMade(ghost));
+                edibleTimes[i] = game.getGhostEdibleTime(ghost);
+                spotted[i] = true;
+                lairTimes[i] = 0;
+            } else if (lairTimes[i] > 0) {
+                // the ghost leaves the lair at the initial node of the ghosts once its lair time is over
+                if (--lairTimes[i] == 0) {
+                    predictions.observe(ghost, game.getGhostInitialNodeIndex(), MOVE.NEUTRAL);
+                    spotted[i] = true;
+                }
+            } else if (spotted[i]) {
+                for (GhostLocation location: predictions.getGhostLocations(ghost)) {
+                    if (game.isNodeObservable(location.getIndex()))
+                        predictions.observeNotPresent(ghost, location.getIndex());
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the belief one tick forward, once the move of the tick has been decided
+     */
+    public void update() {
+        if (predictions != null)
+            predictions.update();
+    }
+
+    /**
+     * Samples a game state from the belief. The ghosts in sight keep their observed state, the hidden ghosts
+     * seen before are placed at a location drawn from the belief, the hidden ghosts eaten by pac-man are placed in
+     * the lair with the lair time left, and the ghosts never seen are placed in the lair
+     * @param game current game state, observed this tick
+     * @return determinized game state
+     */
+    public Game determinize(Game game) {
+        GameInfo info = game.getPopulatedGameInfo();
+        EnumMap<GHOST, GhostLocation> locations = predictions.sampleLocations();
+
+        info.fixGhosts((ghost) -> {
+            int node = game.getGhostCurrentNodeIndex(ghost);
+            if (node != -1)
+                return new Ghost(ghost, node, game.getGhostEdibleTime(ghost), game.getGhostLairTime(ghost),
+                        game.getGhostLastMoveMade(ghost));
+
+            GhostLocation location = locations.get(ghost);
+            if (spotted[ghost.ordinal()] && location != null)
+                return new Ghost(ghost, location.getIndex(), edibleTimes[ghost.ordinal()], 0,
+                        location.getLastMoveMade());
+
+            if (lairTimes[ghost.ordinal()] > 0)
+                return new Ghost(ghost, game.getCurrentMaze().lairNodeIndex, 0, lairTimes[ghost.ordinal()],
+                        MOVE.NEUTRAL);
+
+            return new Ghost(ghost, game.getCurrentMaze().lairNodeIndex, -1, -1, MOVE.NEUTRAL);
+        });
+        return game.getGameFromInfo(info);
+    }
+}
@@ -0,0 +1,15 @@
+package entrants.pacman.chiefsan;
+
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+import java.util.Map;
+
+/**
+ * Model of the ghosts used in the simulations. A model may keep state between calls, so every
+ * thread simulating in parallel uses its own instance
+ */
+public interface GhostModel {
+    Map<GHOST, MOVE> getMoves(Game game);
+}
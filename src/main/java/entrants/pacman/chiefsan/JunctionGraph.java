@@ -0,0 +1,261 @@
+package entrants.pacman.chiefsan;
+
+import pacman.game.Constants;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+import pacman.game.internal.Maze;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Graph of the junctions of a maze, whose edges are the corridors between junctions.
+ * The graph is built once per maze and shared by all the threads, so that the search and the evaluators
+ * can reason from junction to junction instead of simulating every tick of a corridor
+ */
+public final class JunctionGraph {
+
+    private static final Map<Maze, JunctionGraph> GRAPHS = new ConcurrentHashMap<>();
+    private static final GHOST[] GHOSTS = GHOST.values();
+    private static final MOVE[] DIRECTIONS = {MOVE.UP, MOVE.RIGHT, MOVE.DOWN, MOVE.LEFT};
+
+    /**
+     * Corridor leaving a junction by a move, up to the next junction
+     */
+    public static final class Edge {
+        private final int from;
+        private final int to;
+        private final MOVE move;
+        private final MOVE arrivalMove;
+        private final int[] nodes;
+        private final MOVE[] moves;
+        private final int[] pills;
+        private final int[] powerPills;
+
+        private Edge(int from, int to, MOVE move, MOVE arrivalMove, int[] nodes, MOVE[] moves,
+                     int[] pills, int[] powerPills) {
+            this.from = from;
+            this.to = to;
+            this.move = move;
+            this.arrivalMove = arrivalMove;
+            this.nodes = nodes;
+            this.moves = moves;
+            this.pills = pills;
+            this.powerPills = powerPills;
+        }
+
+        /**
+         * Gets the junction the corridor starts at
+         * @return node index
+         */
+        public int getFrom() {
+            return from;
+        }
+
+        /**
+         * Gets the junction the corridor leads to
+         * @return node index
+         */
+        public int getTo() {
+            return to;
+        }
+
+        /**
+         * Gets the move leaving the junction the corridor starts at
+         * @return move
+         */
+        public MOVE getMove() {
+            return move;
+        }
+
+        /**
+         * Gets the last move made in the corridor, when arriving at the junction it leads to
+         * @return move
+         */
+        public MOVE getArrivalMove() {
+            return arrivalMove;
+        }
+
+        /**
+         * Gets the number of ticks pac-man takes to go through the corridor
+         * @return length
+         */
+        public int getLength() {
+            return nodes.length;
+        }
+
+        /**
+         * Gets the nodes of the corridor in the order they are visited, including the junction it leads to
+         * @return node indices, not to be modified
+         */
+        public int[] getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Gets the moves going through the corridor, the move at an index reaching the node at the same index
+         * @return moves, not to be modified
+         */
+        public MOVE[] getMoves() {
+            return moves;
+        }
+
+        /**
+         * Gets the pills on the nodes of the corridor
+         * @return pill indices, not to be modified
+         */
+        public int[] getPills() {
+            return pills;
+        }
+
+        /**
+         * Gets the power pills on the nodes of the corridor
+         * @return power pill indices, not to be modified
+         */
+        public int[] getPowerPills() {
+            return powerPills;
+        }
+
+        /**
+         * Indicates whether a node belongs to the corridor, excluding the junction it starts at
+         * @param node node index
+         * @return true if the node is in the corridor; false otherwise
+         */
+        public boolean contains(int node) {
+            for (int n: nodes) {
+                if (n == node)
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    private final Edge[] edges; // junction * 4 + move, null if the node is not a junction or the move is not possible
+    private final int[] junctions;
+    private final int initialGhostNode;
+
+    private JunctionGraph(Maze maze) {
+        MazeTables tables = MazeTables.get(maze);
+        int nodeCount = maze.graph.length;
+        List<Integer> junctionList = new ArrayList<>();
+        this.edges = new Edge[nodeCount * DIRECTIONS.length];
+        this.initialGhostNode = maze.initialGhostNodeIndex;
+
+        for (int junction = 0; junction < nodeCount; junction++) {
+            if (!tables.isJunction(junction))
+                continue;
+            junctionList.add(junction);
+
+            for (MOVE move: DIRECTIONS) {
+                if (tables.getNeighbour(junction, move) != -1)
+                    edges[junction * DIRECTIONS.length + move.ordinal()] = buildEdge(maze, tables, junction, move);
+            }
+        }
+
+        this.junctions = new int[junctionList.size()];
+        for (int i = 0; i < junctions.length; i++) {
+            junctions[i] = junctionList.get(i);
+        }
+    }
+
+    private static Edge buildEdge(Maze maze, MazeTables tables, int junction, MOVE move) {
+        List<Integer> nodes = new ArrayList<>();
+        List<MOVE> moves = new ArrayList<>();
+        List<Integer> pills = new ArrayList<>();
+        List<Integer> powerPills = new ArrayList<>();
+
+        MOVE lastMove = move;
+        int node = tables.getNeighbour(junction, move);
+        while (true) {
+            nodes.add(node);
+            moves.add(lastMove);
+            if (maze.graph[node].pillIndex >= 0)
+                pills.add(maze.graph[node].pillIndex);
+            if (maze.graph[node].powerPillIndex >= 0)
+                powerPills.add(maze.graph[node].powerPillIndex);
+
+            MOVE next = tables.getCorridorMove(node, lastMove);
+            if (tables.isJunction(node) || next == MOVE.NEUTRAL || nodes.size() > maze.graph.length)
+                break;
+
+            node = tables.getNeighbour(node, next);
+            lastMove = next;
+        }
+
+        return new Edge(junction, node, move, lastMove, toArray(nodes), moves.toArray(new MOVE[0]),
+                toArray(pills), toArray(powerPills));
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Gets the junction graph of the maze being played
+     * @param game current game state
+     * @return junction graph of the current maze
+     */
+    public static JunctionGraph get(Game game) {
+        return GRAPHS.computeIfAbsent(game.getCurrentMaze(), JunctionGraph::new);
+    }
+
+    /**
+     * Gets the corridor leaving a junction by a move
+     * @param junction node index of the junction
+     * @param move move leaving the junction
+     * @return corridor, null if the node is not a junction or the move is not possible
+     */
+    public Edge getEdge(int junction, MOVE move) {
+        if (move == MOVE.NEUTRAL)
+            return null;
+        return edges[junction * DIRECTIONS.length + move.ordinal()];
+    }
+
+    /**
+     * Gets the junctions of the maze
+     * @return node indices, not to be modified
+     */
+    public int[] getJunctions() {
+        return junctions;
+    }
+
+    /**
+     * Indicates whether a ghost may meet pac-man while pac-man goes through a corridor from its start.
+     * A ghost can only enter a corridor at its ends and does not move faster than pac-man, so pac-man is
+     * safe if no ghost is in the corridor, none can reach the far end before pac-man does, and none is
+     * within eating distance of the start. Shortest path distances ignore that ghosts cannot reverse,
+     * which only makes the check more conservative
+     * @param game current game state, with pac-man at the start of the corridor
+     * @param edge corridor
+     * @param margin extra ticks of safety
+     * @return true if a ghost may meet pac-man in the corridor; false otherwise
+     */
+    public boolean isGhostNear(Game game, Edge edge, int margin) {
+        int reach = Constants.EAT_DISTANCE + margin;
+
+        for (GHOST ghost: GHOSTS) {
+            int lairTime = game.getGhostLairTime(ghost);
+            int node = lairTime > 0 ? initialGhostNode : game.getGhostCurrentNodeIndex(ghost);
+            if (node < 0)
+                return true; // position unknown
+
+            if (lairTime == 0 && (node == edge.from || edge.contains(node)))
+                return true;
+
+            if (lairTime + game.getShortestPathDistance(node, edge.to) <= edge.getLength() + reach)
+                return true;
+
+            if (lairTime + game.getShortestPathDistance(node, edge.from) <= reach)
+                return true;
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,129 @@
+package entrants.pacman.chiefsan;
+
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+/**
+ * Rollout policy following the same rules as StarterPacMan (flee from close ghosts, chase the closest
+ * edible ghost, otherwise go for the closest pill) without allocating anything. Between junctions
+ * pac-man keeps following the corridor from the precomputed tables of the maze, and the rules are only
+ * evaluated at junctions. The policy holds no state, so one instance can be shared by all the threads
+ */
+public class JunctionRolloutPolicy implements RolloutPolicy {
+
+    private static final int DEFAULT_MINIMUM_DISTANCE = 20;
+    private static final GHOST[] GHOSTS = GHOST.values();
+    private static final MOVE[] DIRECTIONS = {MOVE.UP, MOVE.RIGHT, MOVE.DOWN, MOVE.LEFT};
+    private int minimumDistance;
+
+    /**
+     * Constructor
+     * @param minimumDistance distance under which pac-man flees from a ghost
+     */
+    public JunctionRolloutPolicy(int minimumDistance) {
+        this.minimumDistance = minimumDistance;
+    }
+
+    public JunctionRolloutPolicy() {
+        this(DEFAULT_MINIMUM_DISTANCE);
+    }
+
+    @Override
+    public MOVE getMove(Game game) {
+        MazeTables tables = MazeTables.get(game);
+        int node = game.getPacmanCurrentNodeIndex();
+
+        if (!tables.isJunction(node)) {
+            MOVE move = tables.getCorridorMove(node, game.getPacmanLastMoveMade());
+            if (move != MOVE.NEUTRAL)
+                return move;
+        }
+
+        return getJunctionMove(game, tables, node);
+    }
+
+    /**
+     * Applies the rules of the policy on a junction
+     * @param game current game state
+     * @param tables tables of the current maze
+     * @param node node of pac-man
+     * @return move to make
+     */
+    private MOVE getJunctionMove(Game game, MazeTables tables, int node) {
+        int target = -1;
+        int minDistance = Integer.MAX_VALUE;
+
+        for (GHOST ghost: GHOSTS) {
+            int ghostNode = game.getGhostCurrentNodeIndex(ghost);
+            if (ghostNode < 0 || game.getGhostLairTime(ghost) > 0)
+                continue;
+
+            int distance = game.getShortestPathDistance(node, ghostNode);
+            if (game.getGhostEdibleTime(ghost) == 0) {
+                if (distance < minimumDistance)
+                    return getMove(game, tables, node, ghostNode, false);
+            } else if (distance < minDistance) {
+                minDistance = distance;
+                target = ghostNode;
+            }
+        }
+
+        if (target == -1) {
+            int[] pills = game.getPillIndices();
+            for (int i = 0; i < pills.length; i++) {
+                if (Boolean.TRUE.equals(game.isPillStillAvailable(i))) { // null when not observable
+                    int distance = game.getShortestPathDistance(node, pills[i]);
+                    if (distance < minDistance) {
+                        minDistance = distance;
+                        target = pills[i];
+                    }
+                }
+            }
+
+            int[] powerPills = game.getPowerPillIndices();
+            for (int i = 0; i < powerPills.length; i++) {
+                if (Boolean.TRUE.equals(game.isPowerPillStillAvailable(i))) {
+                    int distance = game.getShortestPathDistance(node, powerPills[i]);
+                    if (distance < minDistance) {
+                        minDistance = distance;
+                        target = powerPills[i];
+                    }
+                }
+            }
+        }
+
+        if (target == -1)
+            return game.getPacmanLastMoveMade();
+
+        return getMove(game, tables, node, target, true);
+    }
+
+    /**
+     * Finds the move towards or away from a target along the shortest paths
+     * @param game current game state
+     * @param tables tables of the current maze
+     * @param node node of pac-man
+     * @param target target node
+     * @param towards true to move towards the target; false to move away from it
+     * @return move to make
+     */
+    private static MOVE getMove(Game game, MazeTables tables, int node, int target, boolean towards) {
+        MOVE bestMove = MOVE.NEUTRAL;
+        int bestDistance = towards ? Integer.MAX_VALUE : -1;
+
+        for (MOVE move: DIRECTIONS) {
+            int neighbour = tables.getNeighbour(node, move);
+            if (neighbour == -1)
+                continue;
+
+            int distance = game.getShortestPathDistance(neighbour, target);
+            if (towards ? distance < bestDistance : distance > bestDistance) {
+                bestDistance = distance;
+                bestMove = move;
+            }
+        }
+
+        return bestMove;
+    }
+}
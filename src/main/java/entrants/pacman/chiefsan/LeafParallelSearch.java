@@ -0,0 +1,49 @@
+package entrants.pacman.chiefsan;
+
+import pacman.game.Game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Leaf parallel Monte Carlo Tree Search. A single thread searches the tree while the rollouts
+ * of every leaf are played in parallel, averaged and backed up once
+ */
+public class LeafParallelSearch extends ParallelSearch {
+
+    private int rollouts;
+    private NodePool pool;
+
+    /**
+     * Constructor
+     * @param threads number of threads playing the rollouts
+     * @param rollouts number of rollouts played per leaf
+     */
+    public LeafParallelSearch(int threads, int rollouts) {
+        super(threads);
+        this.rollouts = rollouts;
+        this.pool = new NodePool();
+    }
+
+    public LeafParallelSearch(int threads) {
+        this(threads, threads);
+    }
+
+    public LeafParallelSearch() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    protected List<MonteCarloTree> createTrees(Game game, int threads) {
+        List<MonteCarloTree> trees = new ArrayList<>(1);
+        MonteCarloTree tree = new MonteCarloTree(game.copy(), pool);
+        tree.setLeafParallelism(getPool(), rollouts);
+        trees.add(tree);
+        return trees;
+    }
+
+    @Override
+    protected MonteCarloTree combine(List<MonteCarloTree> trees) {
+        return trees.get(0);
+    }
+}
@@ -0,0 +1,156 @@
+package entrants.pacman.chiefsan;
+
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+import pacman.game.internal.Maze;
+import pacman.game.internal.Node;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Flat lookup tables of a maze, computed once per maze and shared by all the threads.
+ * Moves are indexed by their ordinal, so the tables of a node are found at node * 4 + move
+ */
+public final class MazeTables {
+
+    private static final Map<Maze, MazeTables> TABLES = new ConcurrentHashMap<>();
+    private static final MOVE[] MOVES = MOVE.values();
+    private static final int DIRECTIONS = 4;
+
+    private final int[] neighbours;
+    private final byte[] corridorMoves;
+    private final boolean[] junctions;
+    private final int[] pills;
+    private final int[] powerPills;
+    private final int[] distances;
+
+    private MazeTables(Maze maze) {
+        int nodes = maze.graph.length;
+        this.neighbours = new int[nodes * DIRECTIONS];
+        this.corridorMoves = new byte[nodes * DIRECTIONS];
+        this.junctions = new boolean[nodes];
+        this.pills = new int[nodes];
+        this.powerPills = new int[nodes];
+        this.distances = maze.shortestPathDistances;
+
+        for (int i = 0; i < nodes; i++) {
+            Node node = maze.graph[i];
+            junctions[i] = node.numNeighbouringNodes > 2;
+            pills[i] = node.pillIndex;
+            powerPills[i] = node.powerPillIndex;
+
+            for (int m = 0; m < DIRECTIONS; m++) {
+                Integer neighbour = node.neighbourhood.get(MOVES[m]);
+                neighbours[i * DIRECTIONS + m] = neighbour == null ? -1 : neighbour;
+            }
+
+            for (int last = 0; last < DIRECTIONS; last++) {
+                MOVE move = MOVE.NEUTRAL;
+                for (int m = 0; m < DIRECTIONS; m++) {
+                    if (MOVES[m] != MOVES[last].opposite() && node.neighbourhood.containsKey(MOVES[m])) {
+                        move = MOVES[m];
+                        break;
+                    }
+                }
+                corridorMoves[i * DIRECTIONS + last] = (byte) move.ordinal();
+            }
+        }
+    }
+
+    /**
+     * Gets the tables of the maze being played
+     * @param game current game state
+     * @return tables of the current maze
+     */
+    public static MazeTables get(Game game) {
+        return get(game.getCurrentMaze());
+    }
+
+    /**
+     * Gets the tables of a maze
+     * @param maze maze
+     * @return tables of the maze
+     */
+    public static MazeTables get(Maze maze) {
+        return TABLES.computeIfAbsent(maze, MazeTables::new);
+    }
+
+    /**
+     * Gets the node reached from a node by a move
+     * @param node node index
+     * @param move move
+     * @return neighbouring node, -1 if the move is not possible
+     */
+    public int getNeighbour(int node, MOVE move) {
+        return move == MOVE.NEUTRAL ? -1 : neighbours[node * DIRECTIONS + move.ordinal()];
+    }
+
+    /**
+     * Gets the move following the corridor from a node that is not a junction
+     * @param node node index
+     * @param lastMove move made to reach the node
+     * @return the only possible move other than going back, NEUTRAL if there is none
+     */
+    public MOVE getCorridorMove(int node, MOVE lastMove) {
+        if (lastMove == MOVE.NEUTRAL)
+            return MOVE.NEUTRAL;
+        return MOVES[corridorMoves[node * DIRECTIONS + lastMove.ordinal()]];
+    }
+
+    /**
+     * Gets the node reached from a node by a move given by its ordinal, for loops working on ordinals
+     * @param node node index
+     * @param direction ordinal of the move, NEUTRAL included
+     * @return neighbouring node, -1 if the move is not possible
+     */
+    int getNeighbour(int node, int direction) {
+        return direction >= DIRECTIONS ? -1 : neighbours[node * DIRECTIONS + direction];
+    }
+
+    /**
+     * Gets the ordinal of the move following the corridor from a node that is not a junction
+     * @param node node index
+     * @param lastDirection ordinal of the move made to reach the node, NEUTRAL included
+     * @return ordinal of the only possible move other than going back, that of NEUTRAL if there is none
+     */
+    int getCorridorDirection(int node, int lastDirection) {
+        return lastDirection >= DIRECTIONS ? DIRECTIONS : corridorMoves[node * DIRECTIONS + lastDirection];
+    }
+
+    public boolean isJunction(int node) {
+        return junctions[node];
+    }
+
+    /**
+     * Gets the pill on a node
+     * @param node node index
+     * @return pill index, -1 if there is no pill on the node
+     */
+    public int getPillIndex(int node) {
+        return pills[node];
+    }
+
+    /**
+     * Gets the power pill on a node
+     * @param node node index
+     * @return power pill index, -1 if there is no power pill on the node
+     */
+    public int getPowerPillIndex(int node) {
+        return powerPills[node];
+    }
+
+    /**
+     * Gets the shortest path distance between two nodes, as Game.getShortestPathDistance does
+     * @param from node index
+     * @param to node index
+     * @return distance
+     */
+    public int getShortestPathDistance(int from, int to) {
+        if (from == to)
+            return 0;
+        if (from < to)
+            return distances[to * (to + 1) / 2 + from];
+        return distances[from * (from + 1) / 2 + to];
+    }
+}
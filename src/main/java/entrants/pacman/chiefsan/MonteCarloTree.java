@@ -1,32 +1,127 @@
 package entrants.pacman.chiefsan;
 
-import pacman.controllers.MASController;
-import pacman.controllers.examples.StarterPacMan;
-import pacman.controllers.examples.po.POCommGhosts;
+import pacman.game.Constants.GHOST;
 import pacman.game.Constants.MOVE;
 import pacman.game.Game;
 import pacman.game.info.GameInfo;
 import pacman.game.internal.Ghost;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
 
 /**
  * Class for Monte Carlo Tree
  */
 public class MonteCarloTree {
+    private static final int CORRIDOR_MARGIN = 2;
+    private static final int MAX_CHILDREN = 4;
     private Game game;
-    private MASController ghosts;
-    private Stack<Game> gameStates;
+    private GhostModel ghosts;
+    private Function<SplittableRandom, GhostModel> ghostModel;
+    private Deque<Game> gameStates;
     private MonteCarloTreeNode rootNode;
-    public static Random random = new Random();
+    private SplittableRandom random;
     private Set<Integer> activePowerPills;
+    private SelectionPolicy selectionPolicy;
+    private ForkJoinPool rolloutPool;
+    private GhostModel[] rolloutGhosts;
+    private List<MonteCarloTreeNode> visitedNodes;
+    private RolloutTrace trace;
+    private EnumMap<GHOST, MOVE> noGhostMoves;
+    private RolloutHorizon rolloutHorizon;
+    private RolloutPolicy rolloutPolicy;
+    private BatchedRollouts batchedRollouts;
+    private SimulationBudget simulationBudget;
+    private Game[] leaves;
+    private int[] leafBonuses;
+    private int[] leafScores;
 
     /**
      * Constructs an MCT based on the given game state
      * @param game game state
      */
     public MonteCarloTree(Game game) {
-        Game coGame;
+        this(game, new NodePool());
+    }
+
+    /**
+     * Constructs an MCT based on the given game state, recycling the nodes of the given pool
+     * @param game game state
+     * @param pool pool holding the nodes of the tree, any nodes already in it are discarded
+     */
+    public MonteCarloTree(Game game, NodePool pool) {
+        this(game, pool, new UCBTunedSelectionPolicy());
+    }
+
+    /**
+     * Constructs an MCT based on the given game state, recycling the nodes of the given pool
+     * @param game game state
+     * @param pool pool holding the nodes of the tree, any nodes already in it are discarded
+     * @param selectionPolicy policy selecting the child to descend to
+     */
+    public MonteCarloTree(Game game, NodePool pool, SelectionPolicy selectionPolicy) {
+        this(game, pool.newRoot(), selectionPolicy);
+    }
+
+    /**
+     * Constructs an MCT based on the given game state searching from a root node that may be
+     * shared with the trees of other threads
+     * @param game game state
+     * @param rootNode root node of the search
+     * @param selectionPolicy policy selecting the child to descend to, with virtual loss if the root is shared
+     */
+    public MonteCarloTree(Game game, MonteCarloTreeNode rootNode, SelectionPolicy selectionPolicy) {
+        this(game, rootNode, selectionPolicy, false);
+    }
+
+    /**
+     * Constructs an MCT based on the given game state searching from a root node that may be
+     * shared with the trees of other threads
+     * @param game game state
+     * @param rootNode root node of the search
+     * @param selectionPolicy policy selecting the child to descend to, with virtual loss if the root is shared
+     * @param determinized true if the ghosts of the game state have been placed from a belief and are searched as given,
+     *                     false to place them in the lair
+     */
+    public MonteCarloTree(Game game, MonteCarloTreeNode rootNode, SelectionPolicy selectionPolicy,
+                          boolean determinized) {
+        this.game = determinized ? game : getCoGame(game);
+        this.gameStates = new ArrayDeque<>();
+        this.rootNode = rootNode;
+        this.selectionPolicy = selectionPolicy;
+        this.visitedNodes = new ArrayList<>();
+        this.noGhostMoves = new EnumMap<>(GHOST.class);
+        this.rolloutHorizon = RolloutHorizon.FULL;
+        this.rolloutPolicy = new StarterRolloutPolicy();
+        this.trace = RolloutTrace.ENABLED ? RolloutTrace.getDefault() : null;
+        this.random = new SplittableRandom();
+
+        this.ghostModel = SimulationGhosts::new;
+        this.ghosts = ghostModel.apply(random.split());
+
+        this.activePowerPills = new HashSet<Integer>();
+        updateActivePowerPills(game.getActivePowerPillsIndices());
+        startTranspositionGeneration();
+    }
+
+    /**
+     * Marks the situations in the transposition table from previous searches as replaceable
+     */
+    private void startTranspositionGeneration() {
+        TranspositionTable table = rootNode.getPool().getTranspositionTable();
+        if (table != null) {
+            table.nextGeneration();
+        }
+    }
+
+    /**
+     * Builds the game state searched by the tree, with the ghosts placed in the lair
+     * @param game current game state
+     * @return game state to search
+     */
+    private static Game getCoGame(Game game) {
         GameInfo info = game.getPopulatedGameInfo();
         info.fixGhosts((ghost) -> new Ghost(
                 ghost,
@@ -35,15 +130,7 @@ public class MonteCarloTree {
                 -1,
                 MOVE.NEUTRAL
         ));
-        coGame = game.getGameFromInfo(info);
-        this.game = coGame;
-        this.gameStates = new Stack<>();
-        this.rootNode = new MonteCarloTreeNode(); // this is the root node
-
-        this.ghosts = new POCommGhosts(50);
-
-        this.activePowerPills = new HashSet<Integer>();
-        updateActivePowerPills(game.getActivePowerPillsIndices());
+        return game.getGameFromInfo(info);
     }
 
     /**
@@ -56,15 +143,37 @@ public class MonteCarloTree {
         }
     }
 
+    /**
+     * Saves the current game state and continues on a copy of it
+     * @return the copy, which is now the current game state
+     */
     public Game pushGameState() {
         gameStates.push(game);
-        return game.copy();
+        game = game.copy();
+        return game;
     }
 
+    /**
+     * Discards the current game state and restores the last saved one
+     */
     public void popGameState() {
         game = gameStates.pop();
     }
 
+    /**
+     * Plays several rollouts from every leaf on the given pool instead of a single one on the calling thread.
+     * The tree itself is still searched by a single thread
+     * @param pool pool playing the rollouts
+     * @param rollouts number of rollouts played per leaf, each with its own ghost model
+     */
+    public void setLeafParallelism(ForkJoinPool pool, int rollouts) {
+        this.rolloutPool = pool;
+        this.rolloutGhosts = new GhostModel[rollouts];
+        for (int i = 0; i < rollouts; i++) {
+            rolloutGhosts[i] = ghostModel.apply(random.split());
+        }
+    }
+
     public Game getGameState() {
         return game;
     }
@@ -73,11 +182,151 @@ public class MonteCarloTree {
         rootNode = node;
     }
 
+    public MonteCarloTreeNode getRootNode() {
+        return rootNode;
+    }
+
+    /**
+     * Sets the horizon at which the rollouts are cut and their state evaluated
+     * @param rolloutHorizon horizon, RolloutHorizon.FULL to play the rollouts to the end of the level
+     */
+    public void setRolloutHorizon(RolloutHorizon rolloutHorizon) {
+        this.rolloutHorizon = rolloutHorizon;
+    }
+
+    public RolloutHorizon getRolloutHorizon() {
+        return rolloutHorizon;
+    }
+
+    /**
+     * Sets the policy moving pac-man during the rollouts
+     * @param rolloutPolicy policy, shared by the rollouts played in parallel
+     */
+    public void setRolloutPolicy(RolloutPolicy rolloutPolicy) {
+        this.rolloutPolicy = rolloutPolicy;
+    }
+
+    public RolloutPolicy getRolloutPolicy() {
+        return rolloutPolicy;
+    }
+
+    /**
+     * Plays the rollouts on a batched rollout engine instead of one by one on Game objects. The children of an
+     * expanded node are evaluated together, sharing the lanes of the engine, and the pac-man and ghost models of
+     * the engine replace the rollout policy and ghost model of the tree during the rollouts
+     * @param batchedRollouts engine owned by this tree, null to play the rollouts one by one
+     */
+    public void setBatchedRollouts(BatchedRollouts batchedRollouts) {
+        this.batchedRollouts = batchedRollouts;
+        if (batchedRollouts != null && leaves == null) {
+            this.leaves = new Game[MAX_CHILDREN];
+            this.leafBonuses = new int[MAX_CHILDREN];
+            this.leafScores = new int[MAX_CHILDREN];
+        }
+    }
+
+    public BatchedRollouts getBatchedRollouts() {
+        return batchedRollouts;
+    }
+
+    /**
+     * Sets the budget deciding when a search until a deadline stops, learning the time taken by a simulation
+     * @param simulationBudget budget used by the thread searching this tree only, null to simulate until the deadline
+     */
+    public void setSimulationBudget(SimulationBudget simulationBudget) {
+        this.simulationBudget = simulationBudget;
+    }
+
+    public SimulationBudget getSimulationBudget() {
+        return simulationBudget;
+    }
+
+    /**
+     * Sets the model of the ghosts in the simulations. Every rollout played in parallel gets its own instance,
+     * with its own stream split from the stream of the tree
+     * @param ghostModel factory of the ghost model, given the stream of the instance
+     */
+    public void setGhostModel(Function<SplittableRandom, GhostModel> ghostModel) {
+        this.ghostModel = ghostModel;
+        createGhostModels();
+    }
+
+    /**
+     * Creates the ghost models of the simulations from the current factory, with streams split from the stream
+     * of the tree
+     */
+    private void createGhostModels() {
+        this.ghosts = ghostModel.apply(random.split());
+        if (rolloutGhosts != null) {
+            for (int i = 0; i < rolloutGhosts.length; i++) {
+                rolloutGhosts[i] = ghostModel.apply(random.split());
+            }
+        }
+    }
+
+    /**
+     * Sets the stream of the random numbers of the tree, used by the tree and its evaluators on the thread
+     * searching it. The ghost models are created again with streams split from it, so that a tree given a seeded
+     * stream draws nothing from the unseeded stream it was constructed with
+     * @param random stream owned by this tree
+     */
+    public void setRandom(SplittableRandom random) {
+        this.random = random;
+        createGhostModels();
+    }
+
+    public SplittableRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * Sets the trace recording the rollouts of this tree. Only used when tracing is enabled
+     * @param trace trace, null to record nothing
+     */
+    public void setTrace(RolloutTrace trace) {
+        this.trace = trace;
+    }
+
+    public SelectionPolicy getSelectionPolicy() {
+        return selectionPolicy;
+    }
+
+    public void setSelectionPolicy(SelectionPolicy selectionPolicy) {
+        this.selectionPolicy = selectionPolicy;
+    }
+
+    /**
+     * Moves the root to the child of the move made at the last decision, discarding its siblings and keeping
+     * the statistics of its subtree, so that the search continues from the given game state.
+     * The subtree is compacted to the start of the node pool and the rest of the pool is recycled
+     * @param game current game state, with pac-man on the junction reached after the last decision
+     * @param move move made at the root in the last decision
+     * @return true if the tree was re-rooted; false if the subtree does not match the game state
+     */
+    public boolean reroot(Game game, MOVE move) {
+        MonteCarloTreeNode child = rootNode.getChild(move);
+
+        if (child == null
+                || child.getJunctionIndex() != game.getPacmanCurrentNodeIndex()
+                || game.getCurrentLevel() != this.game.getCurrentLevel()
+                || game.getPacmanNumberOfLivesRemaining() != this.game.getPacmanNumberOfLivesRemaining()
+                || !child.hasChildrenFor(game.getPossibleMoves(game.getPacmanCurrentNodeIndex())))
+            return false;
+
+        this.rootNode = child.getPool().retain(child.getIndex());
+        this.game = getCoGame(game);
+        this.gameStates.clear();
+        this.activePowerPills.clear();
+        updateActivePowerPills(game.getActivePowerPillsIndices());
+        startTranspositionGeneration();
+        return true;
+    }
+
     /**
      * Performs a Monte Carlo Simulation from current game state
      */
     public void simulate() {
-        List<MonteCarloTreeNode> visitedNodes = new ArrayList<>();
+        visitedNodes.clear();
         int lives = this.game.getPacmanNumberOfLivesRemaining();
         pushGameState();
         try {
@@ -85,31 +334,24 @@ public class MonteCarloTree {
             visitedNodes.add(node);
 
             while (!node.isLeafNode()) {
-                node = new UCBTunedSelectionPolicy().selectChild(node);
+                node = selectionPolicy.selectChild(node);
 
                 if (node == null)
                     return;
 
                 visitedNodes.add(node);
 
-                game.advanceGame(node.getMove(), ghosts.getMove(game, 0));
-                int[] indices = game.getActivePowerPillsIndices();
-                if (indices.length != activePowerPills.size()) {
-                    updateActivePowerPills(indices);
-                }
-
-                while (!game.isJunction(game.getPacmanCurrentNodeIndex())) {
-                    game.advanceGame(MyPacMan.nonJunctionSim(game), ghosts.getMove(game, 10));
-                }
-                MOVE[] possibleMoves = game.getPossibleMoves(game.getPacmanCurrentNodeIndex());
-                game.advanceGame(possibleMoves[random.nextInt(possibleMoves.length)],
-                        ghosts.getMove(game.copy(), 10));
+                traverseCorridor(node.getMove());
+                setJunction(node);
             }
 
             if (node.getNumberOfVisits() >= 20 || node == rootNode) { // always expand the rootnode
                 node.expand(game);
+            }
 
-                for (MonteCarloTreeNode child : node.getChildren()) {
+            if (!node.isLeafNode()) { // not expanded if the node pool is full
+                for (int i = 0; i < node.getChildCount(); i++) {
+                    MonteCarloTreeNode child = node.getChild(i);
 
                     int powerPillCount = game.getNumberOfActivePowerPills();
                     int pillCount = game.getNumberOfActivePills();
@@ -118,18 +360,8 @@ public class MonteCarloTree {
 
                     pushGameState();
 
-                    game.advanceGame(move, ghosts.getMove(game, 0));
-                    int[] indices = game.getActivePowerPillsIndices();
-                    if (indices.length != activePowerPills.size()) {
-                        updateActivePowerPills(indices);
-                    }
-
-                    while (!game.isJunction(game.getPacmanCurrentNodeIndex())) {
-                        game.advanceGame(MyPacMan.nonJunctionSim(game), ghosts.getMove(game, 10));
-                    }
-                    MOVE[] possibleMoves = game.getPossibleMoves(game.getPacmanCurrentNodeIndex());
-                    game.advanceGame(possibleMoves[random.nextInt(possibleMoves.length)],
-                            ghosts.getMove(game.copy(), 10));
+                    traverseCorridor(move);
+                    setJunction(child);
 
                     if (game.getNumberOfActivePowerPills() < powerPillCount) {
                         child.setMoveEatsPowerPill(true);
@@ -144,19 +376,28 @@ public class MonteCarloTree {
                     if (game.getCurrentLevel() > level)
                         score += 10000;
 
-                    score += runSimulation(visitedNodes, lives);
-                    child.updateScore(score);
+                    if (batchedRollouts != null) {
+                        leafBonuses[i] = score;
+                        leaves[i] = game;
+                    } else {
+                        score += runSimulation(visitedNodes, lives);
+                        child.updateScore(score);
+                    }
 
                     popGameState();
                 }
 
-                node = new UCBTunedSelectionPolicy().selectChild(node);
+                if (batchedRollouts != null) {
+                    evaluateLeaves(node, lives);
+                }
+
+                node = selectionPolicy.selectChild(node);
                 if (node == null)
                     return;
 
                 visitedNodes.add(node);
 
-                game.advanceGame(node.getMove(), ghosts.getMove(game, 0));
+                game.advanceGame(node.getMove(), ghosts.getMoves(game));
                 int[] indices = game.getActivePowerPillsIndices();
                 if (indices.length < activePowerPills.size()) {
                     updateActivePowerPills(indices);
@@ -166,6 +407,128 @@ public class MonteCarloTree {
 
         } finally {
             popGameState();
+            if (selectionPolicy.getVirtualLoss() > 0) {
+                for (int i = 1; i < visitedNodes.size(); i++) {
+                    visitedNodes.get(i).removeVirtualLoss();
+                }
+            }
+        }
+    }
+
+    /**
+     * Plays a move from a junction up to the next junction in a single step. When no ghost can meet pac-man
+     * in the corridor, pac-man follows the precomputed moves of the corridor and the ghost model is only asked
+     * for moves on the ticks a ghost has to take a decision; otherwise the corridor is simulated tick by tick
+     * with the non-junction policy
+     * @param move move made at the junction
+     */
+    private void traverseCorridor(MOVE move) {
+        JunctionGraph graph = JunctionGraph.get(game);
+        JunctionGraph.Edge edge = graph.getEdge(game.getPacmanCurrentNodeIndex(), move);
+
+        if (edge != null && !graph.isGhostNear(game, edge, CORRIDOR_MARGIN)) {
+            MOVE[] moves = edge.getMoves();
+            int level = game.getCurrentLevel();
+            for (int i = 0; i < moves.length && !game.gameOver() && game.getCurrentLevel() == level; i++) {
+                game.advanceGame(moves[i], getCorridorGhostMoves());
+            }
+        } else {
+            game.advanceGame(move, ghosts.getMoves(game));
+            while (!game.isJunction(game.getPacmanCurrentNodeIndex()) && !game.gameOver()) {
+                game.advanceGame(MyPacMan.nonJunctionSim(game, random), ghosts.getMoves(game));
+            }
+        }
+
+        int[] indices = game.getActivePowerPillsIndices();
+        if (indices.length != activePowerPills.size()) {
+            updateActivePowerPills(indices);
+        }
+    }
+
+    /**
+     * Gets the ghost moves while pac-man goes through a corridor
+     * @return moves of the ghost model if a ghost has to take a decision; no moves otherwise
+     */
+    private Map<GHOST, MOVE> getCorridorGhostMoves() {
+        for (GHOST ghost: GHOST.values()) {
+            if (Boolean.TRUE.equals(game.doesGhostRequireAction(ghost)))
+                return ghosts.getMoves(game);
+        }
+        noGhostMoves.clear();
+        return noGhostMoves;
+    }
+
+    /**
+     * Records the junction reached by a node and, with a transposition table, the situation reached
+     * @param node node whose move has just been played up to the next junction
+     */
+    private void setJunction(MonteCarloTreeNode node) {
+        node.setJunctionIndex(game.getPacmanCurrentNodeIndex());
+        if (node.getPool().getTranspositionTable() != null) {
+            node.setStateKey(ZobristHash.get(game).hash(game));
+        }
+    }
+
+    /**
+     * Performs a fixed number of Monte Carlo Simulations
+     * @param simulations number of simulations to perform
+     * @return number of simulations performed
+     */
+    public int simulate(int simulations) {
+        for (int i = 0; i < simulations; i++) {
+            simulate();
+        }
+        return simulations;
+    }
+
+    /**
+     * Keeps performing Monte Carlo Simulations until the deadline is reached, or with a simulation budget until
+     * the next simulation would likely end after the deadline. At least one simulation is always performed
+     * so that the root node is expanded and a best node exists
+     * @param deadline value of System.nanoTime() at which the search has to stop
+     * @return number of simulations performed
+     */
+    public int simulateUntil(long deadline) {
+        int simulations = 0;
+
+        if (simulationBudget == null) {
+            do {
+                simulate();
+                simulations++;
+            } while (System.nanoTime() < deadline);
+
+            return simulations;
+        }
+
+        long now = System.nanoTime();
+        do {
+            simulate();
+            simulations++;
+            long end = System.nanoTime();
+            simulationBudget.update(end - now);
+            now = end;
+        } while (simulationBudget.canSimulate(now, deadline));
+
+        return simulations;
+    }
+
+    /**
+     * Merges the statistics of the root children of another tree searched from the same game state
+     * @param other tree to merge into this one
+     */
+    public void merge(MonteCarloTree other) {
+        if (other.rootNode.isLeafNode())
+            return;
+        if (rootNode.isLeafNode())
+            rootNode.expand(game);
+
+        rootNode.merge(other.rootNode);
+        for (int i = 0; i < other.rootNode.getChildCount(); i++) {
+            MonteCarloTreeNode child = other.rootNode.getChild(i);
+            MonteCarloTreeNode node = rootNode.getChild(child.getMove());
+            if (node != null) {
+                node.merge(child);
+            }
         }
     }
 
@@ -182,15 +545,45 @@ public class MonteCarloTree {
             score -= 10000; // death penalty
         }
 
-        score += exhaust();
+        if (rolloutPool != null) {
+            score += exhaustInParallel();
+        } else if (batchedRollouts != null) {
+            score += batchedRollouts.evaluate(game);
+        } else {
+            score += exhaust(game, rolloutPolicy, ghosts, rolloutHorizon, trace);
+        }
 
-        for (MonteCarloTreeNode n: visitedNodes) {
-            n.updateScore(score);
+        for (int i = 0; i < visitedNodes.size(); i++) {
+            visitedNodes.get(i).updateScore(score);
         }
 
         return score;
     }
 
+    /**
+     * Evaluates the children of a node just expanded in a single batch of rollouts, and updates the scores of
+     * the children and of the nodes visited to reach them as runSimulation does for every child
+     * @param node expanded node, whose children have their game states in leaves
+     * @param lives number of lives initially remaining for pac-man
+     */
+    private void evaluateLeaves(MonteCarloTreeNode node, int lives) {
+        int count = node.getChildCount();
+        batchedRollouts.evaluate(leaves, count, leafScores);
+
+        for (int i = 0; i < count; i++) {
+            int score = leafScores[i];
+            if (leaves[i].getPacmanNumberOfLivesRemaining() < lives) {
+                score -= 10000; // death penalty
+            }
+
+            for (int j = 0; j < visitedNodes.size(); j++) {
+                visitedNodes.get(j).updateScore(score);
+            }
+            node.getChild(i).updateScore(leafBonuses[i] + score);
+            leaves[i] = null;
+        }
+    }
+
     /**
      * Gets the collection of children of states for the current game state
      * @return children
@@ -234,22 +627,65 @@ public class MonteCarloTree {
 
 
     /**
-     * Plays a game using a random pac-man/ghosts model till the end of the game
-     * @return score at the end of the game
+     * Plays the rollouts of a leaf on the rollout pool, each from its own copy of the current game state.
+     * The current game state is discarded after the rollouts, so the last rollout plays on it without a copy
+     * @return average score at the end of the rollouts
+     */
+    private int exhaustInParallel() {
+        List<ForkJoinTask<Integer>> tasks = new ArrayList<>(rolloutGhosts.length);
+
+        for (int i = 0; i < rolloutGhosts.length; i++) {
+            GhostModel rolloutGhost = rolloutGhosts[i];
+            Game rollout = i < rolloutGhosts.length - 1 ? game.copy() : game;
+            tasks.add(rolloutPool.submit(() -> exhaust(rollout, rolloutPolicy, rolloutGhost, rolloutHorizon, trace)));
+        }
+
+        int score = 0;
+        for (ForkJoinTask<Integer> task: tasks) {
+            score += task.join();
+        }
+
+        return score / tasks.size();
+    }
+
+    /**
+     * Plays a game using a pac-man/ghosts model till the end of the level or the rollout horizon
+     * @param game game state to play from
+     * @param pacman policy moving pac-man
+     * @param ghosts ghost model to play against
+     * @param horizon horizon at which the rollout is cut and its state evaluated
+     * @param trace trace recording the rollout, null to record nothing
+     * @return score at the end of the game, or the estimated score if the rollout was cut
      */
-    private int exhaust() {
+    private static int exhaust(Game game, RolloutPolicy pacman, GhostModel ghosts, RolloutHorizon horizon, RolloutTrace trace) {
 
         int level = game.getCurrentLevel();
         int i = 0;
+        int junctions = 0;
+        boolean cut = false;
 
-        while (i++ < 10000
+        while (i < 10000
                 && !game.gameOver()
                 && game.getCurrentLevel() == level) {
-            System.out.println(i);
-            game.advanceGame(new StarterPacMan().getMove(game, 0), ghosts.getMove(game, 0));
+            if (horizon.isReached(i, junctions)) {
+                cut = true;
+                break;
+            }
+            game.advanceGame(pacman.getMove(game), ghosts.getMoves(game));
+            i++;
+            if (horizon.getMaxJunctions() > 0 && game.isJunction(game.getPacmanCurrentNodeIndex())) {
+                junctions++;
+            }
         }
 
-        int score = game.getScore();
+        int score = cut ? horizon.evaluate(game) : game.getScore();
+
+        if (RolloutTrace.ENABLED && trace != null) {
+            trace.record(i, cut ? RolloutTrace.Termination.HORIZON
+                    : game.gameOver() ? RolloutTrace.Termination.GAME_OVER
+                    : game.getCurrentLevel() != level ? RolloutTrace.Termination.LEVEL_CLEARED
+                    : RolloutTrace.Termination.TICK_CAP, score);
+        }
 
         return score;
     }
@@ -1,49 +1,103 @@
 package entrants.pacman.chiefsan;
 
 import java.util.*;
+
 import pacman.game.Constants.MOVE;
 import pacman.game.Game;
 
 /**
  * Class for node in the Monte Carlo Tree.
+ * A node is a view of one slot of a NodePool, which holds the statistics and children of the whole tree.
+ * The views are created with the pool and recycled with it.
  */
 public class MonteCarloTreeNode {
-    private MOVE move;
-    private MonteCarloTreeNode parent;
-    private int numberOfVisits;
-    private int scoreBonus;
-    private Map<Object, MonteCarloTreeNode> children;
-    private double mean;
-    private boolean moveEatsPowerPill;
-    private boolean moveEatsPills;
+    private final NodePool pool;
+    private final int index;
+    private final List<MonteCarloTreeNode> children;
 
     /**
-     * Default Constructor
+     * Constructor
+     * @param pool pool holding the node
+     * @param index index of the node in the pool
      */
-    public MonteCarloTreeNode() {
-        this.numberOfVisits = 0;
-        this.move = MOVE.NEUTRAL;
-        this.scoreBonus = 0;
-        this.parent = null;
+    MonteCarloTreeNode(NodePool pool, int index) {
+        this.pool = pool;
+        this.index = index;
+        this.children = new AbstractList<MonteCarloTreeNode>() {
+            @Override
+            public MonteCarloTreeNode get(int i) {
+                return getChild(i);
+            }
+
+            @Override
+            public int size() {
+                return getChildCount();
+            }
+        };
     }
 
     /**
-     * Constructor for children
-     * @param parent The parent of the node
-     * @param move The move contained in the node
+     * Gets the index of this node in its pool
+     * @return index
      */
-    public MonteCarloTreeNode(MonteCarloTreeNode parent, MOVE move) {
-        this.parent = parent;
-        this.move = move;
+    public int getIndex() {
+        return this.index;
     }
 
     /**
-     * Updates the mean score as well as the number of visits to the node
+     * Gets the pool holding this node
+     * @return pool
+     */
+    public NodePool getPool() {
+        return this.pool;
+    }
+
+    /**
+     * Updates the mean score and its variance as well as the number of visits to the node
      * @param score Score in the visit to be updated
      */
     public void updateScore(int score) {
-        this.mean = (this.mean*this.numberOfVisits+score)/(this.numberOfVisits+1);
-        this.numberOfVisits += 1;
+        pool.update(index, 1, score, 0);
+
+        TranspositionTable table = pool.getTranspositionTable();
+        long key = pool.getStateKey(index);
+        if (table != null && key != 0)
+            table.update(key, score, index, getNumberOfVisits());
+    }
+
+    /**
+     * Adds a virtual loss while a thread is simulating through this node
+     */
+    public void addVirtualLoss() {
+        pool.addVirtualLoss(index, 1);
+    }
+
+    /**
+     * Removes the virtual loss once the thread has backed up its result
+     */
+    public void removeVirtualLoss() {
+        pool.addVirtualLoss(index, -1);
+    }
+
+    /**
+     * Gets the number of threads currently simulating through this node
+     * @return virtual loss
+     */
+    public int getVirtualLoss() {
+        return pool.getVirtualLoss(index);
+    }
+
+    /**
+     * Merges the statistics of a node searched by another tree into this node
+     * @param other node holding the same move in the other tree
+     */
+    public void merge(MonteCarloTreeNode other) {
+        pool.update(index, other.getNumberOfVisits(),
+                other.pool.getMean(other.index), other.pool.getSquaredDeviations(other.index));
+        if (other.isMoveEatsPowerPill())
+            setMoveEatsPowerPill(true);
+        if (other.isMoveEatsPills())
+            setMoveEatsPills(true);
     }
 
     /**
@@ -51,20 +105,26 @@ public class MonteCarloTreeNode {
      * @param bonus Bonus given by the evaluators
      */
     public void addScoreBonus(int bonus) {
-        this.scoreBonus += bonus;
+        pool.addScoreBonus(index, bonus);
     }
 
     /**
-     * Expands the game from the current node based on the set of moves available
+     * Expands the game from the current node based on the set of moves available.
+     * If another thread expands the node first its children are kept, and if the pool is full the node stays a leaf
      * @param game Current game state
+     * @return true if the children were created by this call; false otherwise
      */
-    public void expand(Game game) {
-        MOVE[] possibleMoves = game.getPossibleMoves(game.getPacmanCurrentNodeIndex());
-        this.children = new HashMap<>(possibleMoves.length);
+    public boolean expand(Game game) {
+        return expand(game.getPossibleMoves(game.getPacmanCurrentNodeIndex()));
+    }
 
-        for (MOVE move: possibleMoves) {
-            this.children.put(move, new MonteCarloTreeNode(this, move));
-        }
+    /**
+     * Expands this node by adding a child node for each of the given moves
+     * @param moves moves contained in the children
+     * @return true if the children were created by this call; false otherwise
+     */
+    public boolean expand(MOVE[] moves) {
+        return pool.expand(index, moves);
     }
 
     /**
@@ -72,7 +132,7 @@ public class MonteCarloTreeNode {
      * @return True if node is a leaf; False otherwise
      */
     public boolean isLeafNode() {
-        return this.children==null;
+        return pool.getFirstChild(index) == NodePool.NONE;
     }
 
     /**
@@ -80,7 +140,7 @@ public class MonteCarloTreeNode {
      * @return move
      */
     public MOVE getMove() {
-        return this.move;
+        return pool.getMove(index);
     }
 
     /**
@@ -88,7 +148,7 @@ public class MonteCarloTreeNode {
      * @return number of visits
      */
     public int getNumberOfVisits() {
-        return this.numberOfVisits;
+        return pool.getVisits(index);
     }
 
     /**
@@ -96,9 +156,74 @@ public class MonteCarloTreeNode {
      * @return values of children, if any; null otherwise
      */
     public Collection<MonteCarloTreeNode> getChildren() {
-        if (this.children==null)
+        if (isLeafNode())
             return null;
-        return this.children.values();
+        return this.children;
+    }
+
+    /**
+     * Gets the number of children of this node
+     * @return number of children, 0 for a leaf
+     */
+    public int getChildCount() {
+        return pool.getChildCount(index);
+    }
+
+    /**
+     * Gets a child of this node without going through the children collection
+     * @param i position of the child, between 0 and getChildCount()
+     * @return child
+     */
+    public MonteCarloTreeNode getChild(int i) {
+        return pool.getNode(pool.getFirstChild(index)+i);
+    }
+
+    /**
+     * Gets the child containing the given move
+     * @param move move contained in the child
+     * @return child, if any; null otherwise
+     */
+    public MonteCarloTreeNode getChild(MOVE move) {
+        int first = pool.getFirstChild(index);
+        int count = pool.getChildCount(index);
+        for (int i = first; i < first+count; i++) {
+            if (pool.getMove(i) == move)
+                return pool.getNode(i);
+        }
+        return null;
+    }
+
+    /**
+     * Indicates whether the children of this node are exactly the given moves. A leaf matches any moves
+     * @param moves moves available in the game state of this node
+     * @return true if the children match the moves; false otherwise
+     */
+    public boolean hasChildrenFor(MOVE[] moves) {
+        if (isLeafNode())
+            return true;
+        if (getChildCount() != moves.length)
+            return false;
+        for (MOVE move: moves) {
+            if (getChild(move) == null)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the index of the junction pac-man reaches by making the move of this node
+     * @return junction index, -1 if not simulated yet
+     */
+    public int getJunctionIndex() {
+        return pool.getJunctionIndex(index);
+    }
+
+    /**
+     * Sets the index of the junction pac-man reaches by making the move of this node
+     * @param junctionIndex junction index
+     */
+    public void setJunctionIndex(int junctionIndex) {
+        pool.setJunctionIndex(index, junctionIndex);
     }
 
     /**
@@ -106,7 +231,7 @@ public class MonteCarloTreeNode {
      * @return parent
      */
     public MonteCarloTreeNode getParent() {
-        return this.parent;
+        return pool.getNode(pool.getParent(index));
     }
 
     /**
@@ -114,9 +239,38 @@ public class MonteCarloTreeNode {
      * @return average score
      */
     public double getAverageScore() {
-        if (this.numberOfVisits>0)
-            return this.mean+this.scoreBonus;
-        return this.scoreBonus;
+        return pool.getMean(index)+pool.getScoreBonus(index);
+    }
+
+    /**
+     * Gets the bonus added to the mean score by the evaluators
+     * @return score bonus
+     */
+    public int getScoreBonus() {
+        return pool.getScoreBonus(index);
+    }
+
+    /**
+     * Gets the Zobrist hash of the situation last reached by this node
+     * @return hash, 0 if unknown
+     */
+    public long getStateKey() {
+        return pool.getStateKey(index);
+    }
+
+    public void setStateKey(long key) {
+        pool.setStateKey(index, key);
+    }
+
+    /**
+     * Gets the variance of the scores of the simulations through this node
+     * @return variance, 0 if the node has not been visited
+     */
+    public double getScoreVariance() {
+        int visits = pool.getVisits(index);
+        if (visits>0)
+            return pool.getSquaredDeviations(index)/visits;
+        return 0;
     }
 
     /**
@@ -124,7 +278,7 @@ public class MonteCarloTreeNode {
      * @return true if current move eats any power pills; false otherwise
      */
     public boolean isMoveEatsPowerPill() {
-        return this.moveEatsPowerPill;
+        return pool.isMoveEatsPowerPill(index);
     }
 
     /**
@@ -132,7 +286,7 @@ public class MonteCarloTreeNode {
      * @param moveEatsPowerPill
      */
     public void setMoveEatsPowerPill(boolean moveEatsPowerPill) {
-        this.moveEatsPowerPill = moveEatsPowerPill;
+        pool.setMoveEatsPowerPill(index, moveEatsPowerPill);
     }
 
     /**
@@ -140,7 +294,7 @@ public class MonteCarloTreeNode {
      * @return true if current move eats any pills; false otherwise
      */
     public boolean isMoveEatsPills() {
-        return this.moveEatsPills;
+        return pool.isMoveEatsPills(index);
     }
 
     /**
@@ -148,7 +302,7 @@ public class MonteCarloTreeNode {
      * @param moveEatsPills
      */
     public void setMoveEatsPills(boolean moveEatsPills) {
-        this.moveEatsPills = moveEatsPills;
+        pool.setMoveEatsPills(index, moveEatsPills);
     }
 
     /**
@@ -156,10 +310,10 @@ public class MonteCarloTreeNode {
      * @return true if any of the children has any move that can eat pills, false otherwise
      */
     public boolean isEatPillsInFuture() {
-        if (this.children==null)
-            return false;
-        for (MonteCarloTreeNode child: this.children.values()) {
-            if (child.isMoveEatsPills())
+        int first = pool.getFirstChild(index);
+        int count = pool.getChildCount(index);
+        for (int i = first; i < first+count; i++) {
+            if (pool.isMoveEatsPills(i))
                 return true;
         }
         return false;
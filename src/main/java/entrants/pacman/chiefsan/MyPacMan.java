@@ -7,7 +7,9 @@ import entrants.pacman.chiefsan.evaluators.*;
 import pacman.game.Constants;
 
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /*
  * This is the class you need to modify for your entry. In particular, you need to
@@ -16,12 +18,169 @@ import java.util.Random;
  */
 public class MyPacMan extends PacmanController {
 
+    private static final long DEFAULT_SAFETY_MARGIN = 5;
+    private static final int DEFAULT_SIMULATIONS = 10;
+    private static final int DEFAULT_ROLLOUT_TICKS = 300;
+    private static final int DEFAULT_ROLLOUT_JUNCTIONS = 10;
+    private long safetyMargin;
+    private int lastSimulationCount;
+    private ParallelSearch parallelSearch;
+    private NodePool nodePool;
+    private SelectionPolicy selectionPolicy;
+    private RolloutHorizon rolloutHorizon;
+    private RolloutPolicy rolloutPolicy;
+    private Function<SplittableRandom, GhostModel> ghostModel;
+    private SplittableRandom random;
+    private GhostBelief belief;
+    private MonteCarloTree tree;
+    private MOVE lastMctsMove;
+    private int lastInheritedVisits;
+    private DecisionLatency.Path lastDecisionPath;
+    private DecisionLatency latency;
+    private SimulationBudget simulationBudget;
+
+    /**
+     * Constructor
+     * @param safetyMargin milliseconds kept free before timeDue when searching
+     * @param parallelSearch search running on several threads, null for a single threaded search.
+     *                       The belief of a DeterminizedSearch is observed every tick
+     * @param selectionPolicy policy selecting the children in the single threaded search
+     * @param rolloutHorizon horizon at which the rollouts are cut, RolloutHorizon.FULL to play them to the end of the level
+     * @param rolloutPolicy policy moving pac-man during the rollouts
+     * @param ghostModel factory of the model moving the ghosts during the simulations, given the stream of the model
+     */
+    public MyPacMan(long safetyMargin, ParallelSearch parallelSearch, SelectionPolicy selectionPolicy,
+                    RolloutHorizon rolloutHorizon, RolloutPolicy rolloutPolicy,
+                    Function<SplittableRandom, GhostModel> ghostModel) {
+        this.safetyMargin = safetyMargin;
+        this.parallelSearch = parallelSearch;
+        this.selectionPolicy = selectionPolicy;
+        this.rolloutHorizon = rolloutHorizon;
+        this.rolloutPolicy = rolloutPolicy;
+        this.ghostModel = ghostModel;
+        if (parallelSearch == null) {
+            this.nodePool = new NodePool();
+            this.simulationBudget = new SimulationBudget();
+        } else {
+            this.simulationBudget = parallelSearch.getSimulationBudget(0);
+            parallelSearch.setRolloutHorizon(rolloutHorizon);
+            parallelSearch.setRolloutPolicy(rolloutPolicy);
+            parallelSearch.setGhostModel(ghostModel);
+            if (parallelSearch instanceof DeterminizedSearch) {
+                this.belief = ((DeterminizedSearch) parallelSearch).getBelief();
+            }
+        }
+        setRandom(new SplittableRandom());
+        this.latency = DecisionLatency.ENABLED ? DecisionLatency.getDefault() : null;
+    }
+
+    public MyPacMan(long safetyMargin, ParallelSearch parallelSearch, SelectionPolicy selectionPolicy) {
+        this(safetyMargin, parallelSearch, selectionPolicy,
+                new RolloutHorizon(DEFAULT_ROLLOUT_TICKS, DEFAULT_ROLLOUT_JUNCTIONS), new JunctionRolloutPolicy(),
+                SimulationGhosts::new);
+    }
+
+    public MyPacMan(long safetyMargin, ParallelSearch parallelSearch) {
+        this(safetyMargin, parallelSearch, new UCBTunedSelectionPolicy());
+    }
+
+    /**
+     * Constructor
+     * @param safetyMargin milliseconds kept free before timeDue when searching
+     * @param threads number of determinizations searched in parallel, 1 for a single threaded search
+     */
+    public MyPacMan(long safetyMargin, int threads) {
+        this(safetyMargin, threads > 1 ? new DeterminizedSearch(new GhostBelief(), threads) : null);
+    }
+
+    public MyPacMan(long safetyMargin) {
+        this(safetyMargin, 1);
+    }
+
+    public MyPacMan() {
+        this(DEFAULT_SAFETY_MARGIN);
+    }
+
+    /**
+     * Seeds the random numbers of the decisions and of the searches, so that a game played from the same seed
+     * against the same ghosts replays identically when the decisions are not timed
+     * @param seed seed
+     */
+    public void setSeed(long seed) {
+        setRandom(new SplittableRandom(seed));
+    }
+
+    /**
+     * Sets the stream of the decisions, from which the streams of the searches are split
+     * @param random stream owned by this controller
+     */
+    private void setRandom(SplittableRandom random) {
+        this.random = random;
+        this.tree = null;
+        if (parallelSearch != null) {
+            parallelSearch.setRandom(random.split());
+        }
+    }
+
+    /**
+     * Sets the recorder of the latency of the decisions. Only used when latency recording is enabled
+     * @param latency recorder, null to record nothing
+     */
+    public void setLatency(DecisionLatency latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Sets the highest probability that the last simulation of a search ends after the deadline derived from
+     * timeDue, on every searching thread
+     * @param overrunProbability probability, in (0, 1)
+     */
+    public void setOverrunProbability(double overrunProbability) {
+        if (parallelSearch == null) {
+            simulationBudget.setOverrunProbability(overrunProbability);
+        } else {
+            parallelSearch.setOverrunProbability(overrunProbability);
+        }
+    }
+
+    /**
+     * Gets the budget of the search, or of its first thread when searching in parallel, holding the estimate
+     * of the time taken by a simulation
+     * @return budget
+     */
+    public SimulationBudget getSimulationBudget() {
+        return simulationBudget;
+    }
+
     public MOVE getMove(Game game, long timeDue) {
+        long start = DecisionLatency.ENABLED ? System.nanoTime() : 0;
+
+        if (belief != null) {
+            belief.observe(game);
+        }
+        MOVE move = decide(game, timeDue);
+        if (belief != null) {
+            belief.update();
+        }
+
+        if (DecisionLatency.ENABLED && latency != null) {
+            latency.record(lastDecisionPath, System.nanoTime() - start, timeDue);
+        }
+        return move;
+    }
+
+    /**
+     * Decides the move of the current tick
+     * @param game current game state
+     * @param timeDue time (in milliseconds) by which the move has to be returned, non-positive if untimed
+     */
+    private MOVE decide(Game game, long timeDue) {
 
         int myNodeIndex = game.getPacmanCurrentNodeIndex();
 
         MOVE move = checkNearByGhost(game);
         if(move != MOVE.NEUTRAL) {
+            lastDecisionPath = DecisionLatency.Path.GHOST_ESCAPE;
             return move;
         }
 
@@ -39,14 +198,19 @@ public class MyPacMan extends PacmanController {
         }
 
         if (minGhost != null) {
+            lastDecisionPath = DecisionLatency.Path.EDIBLE_CHASE;
             return game.getNextMoveTowardsTarget(
                     myNodeIndex,
                     game.getGhostCurrentNodeIndex(minGhost),
                     Constants.DM.PATH);
         }
 
-        if (game.getCurrentMaze().graph[myNodeIndex].numNeighbouringNodes > 2) return mcts(game);
-        else return nonJunctionSim(game);
+        if (game.getCurrentMaze().graph[myNodeIndex].numNeighbouringNodes > 2) {
+            lastDecisionPath = DecisionLatency.Path.MCTS;
+            return mcts(game, timeDue);
+        }
+        lastDecisionPath = DecisionLatency.Path.NON_JUNCTION;
+        return nonJunctionSim(game, random);
     }
 
     /**
@@ -75,8 +239,9 @@ public class MyPacMan extends PacmanController {
     /**
      * Computes the next move for pac-man if it is present in a non-junction node (degree < 3)
      * @param game current game state
+     * @param random stream of the thread deciding, drawn from when no pill is left to go for
      */
-    public static MOVE nonJunctionSim(Game game){
+    public static MOVE nonJunctionSim(Game game, SplittableRandom random){
 
         int myNodeIndex = game.getPacmanCurrentNodeIndex();
         int minDistance = Integer.MAX_VALUE;
@@ -141,23 +306,46 @@ public class MyPacMan extends PacmanController {
 
         MOVE[] moves = game.getPossibleMoves(myNodeIndex, game.getPacmanLastMoveMade());
         if (moves.length > 0) {
-            Random random = new Random();
             return moves[random.nextInt(moves.length)];
         }
         return game.getPacmanLastMoveMade().opposite();
     }
 
     /**
-     * Computes the next move for pac-man if it is present in a junction node (degree > 2)
+     * Computes the next move for pac-man if it is present in a junction node (degree > 2).
+     * Simulates until the deadline derived from timeDue, or a fixed number of times if the game is not timed.
+     * The single threaded search continues the tree of the last decision if pac-man reached the junction it predicted
      * @param game current game state
+     * @param timeDue time (in milliseconds) by which the move has to be returned, non-positive if untimed
      */
-    public static MOVE mcts(Game game) {
+    public MOVE mcts(Game game, long timeDue) {
 
-        MonteCarloTree tree = new MonteCarloTree(game);
         MOVE move = MOVE.NEUTRAL;
 
-        for (int i = 0; i < 10; i++) {
-            tree.simulate();
+        if (parallelSearch != null) {
+            if (timeDue > 0) {
+                tree = parallelSearch.search(game, getDeadline(timeDue, safetyMargin));
+            } else {
+                tree = parallelSearch.search(game, DEFAULT_SIMULATIONS);
+            }
+            lastSimulationCount = parallelSearch.getLastSimulationCount();
+        } else {
+            if (tree != null && tree.reroot(game, lastMctsMove)) {
+                lastInheritedVisits = tree.getRootNode().getNumberOfVisits();
+            } else {
+                tree = new MonteCarloTree(game, nodePool, selectionPolicy);
+                tree.setRandom(random.split());
+                tree.setSimulationBudget(simulationBudget);
+                tree.setRolloutHorizon(rolloutHorizon);
+                tree.setRolloutPolicy(rolloutPolicy);
+                tree.setGhostModel(ghostModel);
+                lastInheritedVisits = 0;
+            }
+            if (timeDue > 0) {
+                lastSimulationCount = tree.simulateUntil(getDeadline(timeDue, safetyMargin));
+            } else {
+                lastSimulationCount = tree.simulate(DEFAULT_SIMULATIONS);
+            }
         }
 
         TreeEvaluator[] additionalEvaluators = new TreeEvaluator[] {
@@ -176,8 +364,44 @@ public class MyPacMan extends PacmanController {
         } else {
             move = MOVE.NEUTRAL;
         }
-        tree.setRootNode(node);
+        lastMctsMove = move;
 
         return move;
     }
+
+    /**
+     * Converts the wall clock timeDue into a System.nanoTime() deadline, leaving the safety margin free
+     * @param timeDue time (in milliseconds) by which the move has to be returned
+     * @param safetyMargin milliseconds to be kept free before timeDue
+     * @return value of System.nanoTime() at which the search has to stop
+     */
+    public static long getDeadline(long timeDue, long safetyMargin) {
+        long remaining = timeDue - safetyMargin - System.currentTimeMillis();
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(remaining);
+    }
+
+    /**
+     * Gets the number of simulations that fitted in the budget of the last MCTS decision,
+     * summed over all the trees when searching in parallel
+     * @return number of simulations
+     */
+    public int getLastSimulationCount() {
+        return lastSimulationCount;
+    }
+
+    /**
+     * Gets the number of root visits carried over from the previous tree in the last MCTS decision
+     * @return inherited visits, 0 if the tree was rebuilt
+     */
+    public int getLastInheritedVisits() {
+        return lastInheritedVisits;
+    }
+
+    /**
+     * Gets the path taken by the last decision
+     * @return decision path, null before the first decision
+     */
+    public DecisionLatency.Path getLastDecisionPath() {
+        return lastDecisionPath;
+    }
 }
\ No newline at end of file
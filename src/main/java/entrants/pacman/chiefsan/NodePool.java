@@ -0,0 +1,317 @@
+package entrants.pacman.chiefsan;
+
+import pacman.game.Constants.MOVE;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Struct of arrays store for the nodes of a Monte Carlo Tree.
+ * The pool is allocated once and recycled between decisions, so that the search does not allocate any node.
+ * The children of a node are stored next to each other, and the index of the first child and the number
+ * of children are packed into one int so that an expansion is published by a single compareAndSet.
+ * Children and flags are updated lock-free so that several threads can search the same tree. The statistics
+ * of a node are a running mean and sum of squared deviations (Welford), combined under a per-node spin lock.
+ */
+public class NodePool {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final int NONE = -1;
+
+    private static final int COUNT_BITS = 3;
+    private static final int COUNT_MASK = (1 << COUNT_BITS) - 1;
+    private static final int EATS_PILLS = 1;
+    private static final int EATS_POWER_PILL = 2;
+    private static final MOVE[] MOVES = MOVE.values();
+
+    private int capacity;
+    private AtomicInteger size;
+    private int[] parent;
+    private AtomicIntegerArray children; // first child << COUNT_BITS | number of children, NONE for a leaf
+    private byte[] move;
+    private AtomicIntegerArray visits;
+    private AtomicIntegerArray virtualLoss;
+    private AtomicLongArray mean; // raw bits of the double mean of the scores
+    private AtomicLongArray squaredDeviations; // raw bits of the double sum of squared deviations from the mean
+    private AtomicIntegerArray lock;
+    private int[] scoreBonus;
+    private int[] junctionIndex;
+    private AtomicIntegerArray flags;
+    private AtomicLongArray stateKey; // Zobrist hash of the situation last reached by the node, 0 if unknown
+    private TranspositionTable transpositionTable;
+    private int[] remap;
+    private MonteCarloTreeNode[] nodes;
+
+    /**
+     * Constructor
+     * @param capacity maximum number of nodes in the tree
+     */
+    public NodePool(int capacity) {
+        this.capacity = capacity;
+        this.size = new AtomicInteger();
+        this.parent = new int[capacity];
+        this.children = new AtomicIntegerArray(capacity);
+        this.move = new byte[capacity];
+        this.visits = new AtomicIntegerArray(capacity);
+        this.virtualLoss = new AtomicIntegerArray(capacity);
+        this.mean = new AtomicLongArray(capacity);
+        this.squaredDeviations = new AtomicLongArray(capacity);
+        this.lock = new AtomicIntegerArray(capacity);
+        this.scoreBonus = new int[capacity];
+        this.junctionIndex = new int[capacity];
+        this.flags = new AtomicIntegerArray(capacity);
+        this.stateKey = new AtomicLongArray(capacity);
+        this.remap = new int[capacity];
+        this.nodes = new MonteCarloTreeNode[capacity];
+
+        for (int i = 0; i < capacity; i++) {
+            nodes[i] = new MonteCarloTreeNode(this, i);
+        }
+    }
+
+    public NodePool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Discards all the nodes and allocates a new root node
+     * @return root node
+     */
+    public MonteCarloTreeNode newRoot() {
+        size.set(0);
+        int root = allocate(1);
+        initialise(root, NONE, MOVE.NEUTRAL);
+        return nodes[root];
+    }
+
+    /**
+     * Allocates the children of a node, unless another thread has expanded it first
+     * @param node index of the node to expand
+     * @param moves moves contained in the children
+     * @return true if the children were created by this call; false otherwise
+     */
+    boolean expand(int node, MOVE[] moves) {
+        if (children.get(node) != NONE)
+            return false;
+
+        int first = allocate(moves.length);
+        if (first == NONE)
+            return false;
+
+        for (int i = 0; i < moves.length; i++) {
+            initialise(first + i, node, moves[i]);
+        }
+
+        return children.compareAndSet(node, NONE, first << COUNT_BITS | moves.length);
+    }
+
+    private int allocate(int count) {
+        int first = size.getAndAdd(count);
+        if (first + count > capacity) {
+            return NONE;
+        }
+        return first;
+    }
+
+    private void initialise(int node, int parent, MOVE move) {
+        this.parent[node] = parent;
+        this.children.set(node, NONE);
+        this.move[node] = (byte) move.ordinal();
+        this.visits.set(node, 0);
+        this.virtualLoss.set(node, 0);
+        this.mean.set(node, 0);
+        this.squaredDeviations.set(node, 0);
+        this.lock.set(node, 0);
+        this.scoreBonus[node] = 0;
+        this.junctionIndex[node] = NONE;
+        this.flags.set(node, 0);
+        this.stateKey.set(node, 0);
+    }
+
+    /**
+     * Keeps only the subtree of the given node, which becomes the root, and compacts it to the start of the pool.
+     * Children are always allocated after their parent, so a single pass in index order finds the subtree and
+     * moves every node to a lower index while keeping the children of every node next to each other
+     * @param root index of the new root
+     * @return root node
+     */
+    public MonteCarloTreeNode retain(int root) {
+        int end = Math.min(size.get(), capacity);
+        int next = 0;
+
+        for (int i = root; i < end; i++) {
+            int p = parent[i];
+            boolean kept = i == root
+                    || (p >= root && remap[p] != NONE
+                    && i >= getFirstChild(p) && i < getFirstChild(p) + getChildCount(p));
+            remap[i] = kept ? next++ : NONE;
+        }
+
+        for (int i = root; i < end; i++) {
+            int target = remap[i];
+            if (target == NONE)
+                continue;
+
+            int first = getFirstChild(i);
+            parent[target] = i == root ? NONE : remap[parent[i]];
+            children.set(target, first == NONE ? NONE : remap[first] << COUNT_BITS | getChildCount(i));
+            move[target] = move[i];
+            visits.set(target, visits.get(i));
+            virtualLoss.set(target, 0);
+            mean.set(target, mean.get(i));
+            squaredDeviations.set(target, squaredDeviations.get(i));
+            lock.set(target, 0);
+            scoreBonus[target] = scoreBonus[i];
+            junctionIndex[target] = junctionIndex[i];
+            flags.set(target, flags.get(i));
+            stateKey.set(target, stateKey.get(i));
+        }
+
+        size.set(next);
+        return nodes[0];
+    }
+
+    /**
+     * Gets the number of nodes in use
+     * @return number of nodes
+     */
+    public int size() {
+        return Math.min(size.get(), capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets the table sharing statistics between the nodes reaching the same situation
+     * @param transpositionTable table, null to disable transpositions
+     */
+    public void setTranspositionTable(TranspositionTable transpositionTable) {
+        this.transpositionTable = transpositionTable;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    MonteCarloTreeNode getNode(int node) {
+        return node == NONE ? null : nodes[node];
+    }
+
+    int getParent(int node) {
+        return parent[node];
+    }
+
+    int getFirstChild(int node) {
+        int packed = children.get(node);
+        return packed == NONE ? NONE : packed >>> COUNT_BITS;
+    }
+
+    int getChildCount(int node) {
+        int packed = children.get(node);
+        return packed == NONE ? 0 : packed & COUNT_MASK;
+    }
+
+    MOVE getMove(int node) {
+        return MOVES[move[node]];
+    }
+
+    int getVisits(int node) {
+        return visits.get(node);
+    }
+
+    double getMean(int node) {
+        return Double.longBitsToDouble(mean.get(node));
+    }
+
+    double getSquaredDeviations(int node) {
+        return Double.longBitsToDouble(squaredDeviations.get(node));
+    }
+
+    /**
+     * Combines the statistics of a number of simulations into the statistics of a node, using the pairwise
+     * update of Chan et al., which for a single simulation is Welford's update
+     * @param node index of the node
+     * @param visits number of simulations
+     * @param mean mean of the scores
+     * @param squaredDeviations sum of the squared deviations of the scores from their mean
+     */
+    void update(int node, int visits, double mean, double squaredDeviations) {
+        if (visits == 0)
+            return;
+
+        while (!lock.compareAndSet(node, 0, 1)) {
+            Thread.yield();
+        }
+        try {
+            int currentVisits = this.visits.get(node);
+            int totalVisits = currentVisits + visits;
+            double currentMean = getMean(node);
+            double delta = mean - currentMean;
+
+            this.mean.set(node, Double.doubleToRawLongBits(currentMean + delta*visits/totalVisits));
+            this.squaredDeviations.set(node, Double.doubleToRawLongBits(getSquaredDeviations(node)
+                    + squaredDeviations + delta*delta*currentVisits*visits/totalVisits));
+            this.visits.set(node, totalVisits);
+        } finally {
+            lock.set(node, 0);
+        }
+    }
+
+    int getVirtualLoss(int node) {
+        return virtualLoss.get(node);
+    }
+
+    void addVirtualLoss(int node, int delta) {
+        virtualLoss.addAndGet(node, delta);
+    }
+
+    int getScoreBonus(int node) {
+        return scoreBonus[node];
+    }
+
+    void addScoreBonus(int node, int bonus) {
+        scoreBonus[node] += bonus;
+    }
+
+    int getJunctionIndex(int node) {
+        return junctionIndex[node];
+    }
+
+    void setJunctionIndex(int node, int junctionIndex) {
+        this.junctionIndex[node] = junctionIndex;
+    }
+
+    boolean isMoveEatsPills(int node) {
+        return (flags.get(node) & EATS_PILLS) != 0;
+    }
+
+    void setMoveEatsPills(int node, boolean moveEatsPills) {
+        setFlag(node, EATS_PILLS, moveEatsPills);
+    }
+
+    boolean isMoveEatsPowerPill(int node) {
+        return (flags.get(node) & EATS_POWER_PILL) != 0;
+    }
+
+    void setMoveEatsPowerPill(int node, boolean moveEatsPowerPill) {
+        setFlag(node, EATS_POWER_PILL, moveEatsPowerPill);
+    }
+
+    private void setFlag(int node, int flag, boolean value) {
+        int current, next;
+        do {
+            current = flags.get(node);
+            next = value ? current | flag : current & ~flag;
+        } while (!flags.compareAndSet(node, current, next));
+    }
+
+    long getStateKey(int node) {
+        return stateKey.get(node);
+    }
+
+    void setStateKey(int node, long key) {
+        stateKey.set(node, key);
+    }
+}
@@ -0,0 +1,215 @@
+package entrants.pacman.chiefsan;
+
+import pacman.game.Game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Base class for Monte Carlo Tree Searches running on several threads of a ForkJoinPool.
+ * Every MonteCarloTree created by a subclass is searched on the pool with its own copy of the game
+ * and its own ghost model, and the trees are combined once the search is over.
+ * The tree of the i-th thread always draws its random numbers from the i-th stream, whichever worker runs it,
+ * so that no generator is shared between the threads and a search started from the same seed replays identically
+ */
+public abstract class ParallelSearch {
+    private ForkJoinPool pool;
+    private int threads;
+    private int lastSimulationCount;
+    private long lastSearchTime;
+    private RolloutHorizon rolloutHorizon;
+    private RolloutPolicy rolloutPolicy;
+    private Function<SplittableRandom, GhostModel> ghostModel;
+    private SplittableRandom[] streams;
+    private SimulationBudget[] budgets;
+
+    /**
+     * Constructor
+     * @param threads number of threads searching in parallel
+     */
+    public ParallelSearch(int threads) {
+        this.threads = threads;
+        this.pool = new ForkJoinPool(threads);
+        this.rolloutHorizon = RolloutHorizon.FULL;
+        this.rolloutPolicy = new StarterRolloutPolicy();
+        setRandom(new SplittableRandom());
+        this.budgets = new SimulationBudget[threads];
+        for (int i = 0; i < threads; i++) {
+            budgets[i] = new SimulationBudget();
+        }
+    }
+
+    /**
+     * Creates the trees searched on the pool
+     * @param game current game state
+     * @param threads number of threads of the pool
+     * @return trees to search
+     */
+    protected abstract List<MonteCarloTree> createTrees(Game game, int threads);
+
+    /**
+     * Combines the searched trees into the tree used to choose the move
+     * @param trees trees searched by the threads
+     * @return tree holding the combined statistics
+     */
+    protected abstract MonteCarloTree combine(List<MonteCarloTree> trees);
+
+    /**
+     * Prepares the configured trees on the calling thread before they are searched on the pool
+     * @param trees trees about to be searched
+     * @return number of simulations performed
+     */
+    protected int prepare(List<MonteCarloTree> trees) {
+        return 0;
+    }
+
+    /**
+     * Searches on every thread until the deadline is reached
+     * @param game current game state
+     * @param deadline value of System.nanoTime() at which the search has to stop
+     * @return tree holding the combined statistics
+     */
+    public MonteCarloTree search(Game game, long deadline) {
+        return search(game, tree -> tree.simulateUntil(deadline));
+    }
+
+    /**
+     * Performs a fixed number of simulations on every thread
+     * @param game current game state
+     * @param simulations number of simulations per thread
+     * @return tree holding the combined statistics
+     */
+    public MonteCarloTree search(Game game, int simulations) {
+        return search(game, tree -> tree.simulate(simulations));
+    }
+
+    private MonteCarloTree search(Game game, ToIntFunction<MonteCarloTree> simulator) {
+        long start = System.nanoTime();
+        List<MonteCarloTree> trees = createTrees(game, threads);
+        List<ForkJoinTask<Integer>> tasks = new ArrayList<>(threads);
+
+        for (int i = 0; i < trees.size(); i++) {
+            MonteCarloTree tree = trees.get(i);
+            tree.setRandom(streams[i]);
+            tree.setSimulationBudget(budgets[i]);
+            tree.setRolloutHorizon(rolloutHorizon);
+            tree.setRolloutPolicy(rolloutPolicy);
+            if (ghostModel != null) {
+                tree.setGhostModel(ghostModel);
+            }
+        }
+
+        int simulations = prepare(trees);
+        for (MonteCarloTree tree: trees) {
+            tasks.add(pool.submit(() -> simulator.applyAsInt(tree)));
+        }
+
+        for (ForkJoinTask<Integer> task: tasks) {
+            simulations += task.join();
+        }
+
+        lastSimulationCount = simulations;
+        lastSearchTime = System.nanoTime() - start;
+        return combine(trees);
+    }
+
+    /**
+     * Gets the pool running the searches
+     * @return pool
+     */
+    protected ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Sets the horizon at which the rollouts of every tree are cut and their state evaluated
+     * @param rolloutHorizon horizon, RolloutHorizon.FULL to play the rollouts to the end of the level
+     */
+    public void setRolloutHorizon(RolloutHorizon rolloutHorizon) {
+        this.rolloutHorizon = rolloutHorizon;
+    }
+
+    /**
+     * Sets the policy moving pac-man during the rollouts of every tree
+     * @param rolloutPolicy policy, shared by all the threads
+     */
+    public void setRolloutPolicy(RolloutPolicy rolloutPolicy) {
+        this.rolloutPolicy = rolloutPolicy;
+    }
+
+    /**
+     * Sets the model of the ghosts in the simulations of every tree
+     * @param ghostModel factory of the ghost model, called for every tree and every parallel rollout
+     */
+    public void setGhostModel(Function<SplittableRandom, GhostModel> ghostModel) {
+        this.ghostModel = ghostModel;
+    }
+
+    /**
+     * Splits the streams of the threads from the given one
+     * @param random stream the streams of the threads are split from
+     */
+    public void setRandom(SplittableRandom random) {
+        this.streams = new SplittableRandom[threads];
+        for (int i = 0; i < threads; i++) {
+            streams[i] = random.split();
+        }
+    }
+
+    /**
+     * Sets the highest probability that the last simulation of a thread ends after the deadline
+     * @param overrunProbability probability, in (0, 1)
+     */
+    public void setOverrunProbability(double overrunProbability) {
+        for (SimulationBudget budget: budgets) {
+            budget.setOverrunProbability(overrunProbability);
+        }
+    }
+
+    /**
+     * Gets the budget of a thread, holding its estimate of the time taken by a simulation
+     * @param thread index of the thread, between 0 and the number of threads
+     * @return budget
+     */
+    public SimulationBudget getSimulationBudget(int thread) {
+        return budgets[thread];
+    }
+
+    /**
+     * Gets the number of threads searching in parallel
+     * @return number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Gets the total number of simulations of the last search over all the threads
+     * @return number of simulations
+     */
+    public int getLastSimulationCount() {
+        return lastSimulationCount;
+    }
+
+    /**
+     * Gets the simulation throughput of the last search
+     * @return simulations per second
+     */
+    public double getSimulationsPerSecond() {
+        if (lastSearchTime == 0)
+            return 0;
+        return lastSimulationCount * 1e9 / lastSearchTime;
+    }
+
+    /**
+     * Stops the worker threads
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,69 @@
+package entrants.pacman.chiefsan;
+
+import entrants.pacman.chiefsan.evaluators.HeuristicLeafEvaluator;
+import entrants.pacman.chiefsan.evaluators.LeafEvaluator;
+import pacman.game.Game;
+
+/**
+ * Horizon of the rollouts. A rollout is cut once it has played a number of ticks or passed a number of
+ * junctions, and the state it is cut at is scored by a leaf evaluator instead of playing on to the end
+ * of the level. Rollouts still end early on game over or when the level is cleared
+ */
+public class RolloutHorizon {
+
+    /**
+     * Plays every rollout to the end of the level
+     */
+    public static final RolloutHorizon FULL = new RolloutHorizon(0, 0, null);
+
+    private int maxTicks;
+    private int maxJunctions;
+    private LeafEvaluator leafEvaluator;
+
+    /**
+     * Constructor
+     * @param maxTicks number of ticks after which a rollout is cut, 0 for no limit
+     * @param maxJunctions number of junctions after which a rollout is cut, 0 for no limit
+     * @param leafEvaluator evaluator scoring the state a rollout is cut at
+     */
+    public RolloutHorizon(int maxTicks, int maxJunctions, LeafEvaluator leafEvaluator) {
+        this.maxTicks = maxTicks;
+        this.maxJunctions = maxJunctions;
+        this.leafEvaluator = leafEvaluator;
+    }
+
+    public RolloutHorizon(int maxTicks, int maxJunctions) {
+        this(maxTicks, maxJunctions, new HeuristicLeafEvaluator());
+    }
+
+    /**
+     * Indicates whether a rollout has reached the horizon
+     * @param ticks number of ticks played
+     * @param junctions number of junctions passed
+     * @return true if the rollout has to be cut; false otherwise
+     */
+    public boolean isReached(int ticks, int junctions) {
+        return (maxTicks > 0 && ticks >= maxTicks) || (maxJunctions > 0 && junctions >= maxJunctions);
+    }
+
+    /**
+     * Scores the state a rollout was cut at
+     * @param game game state
+     * @return estimated score at the end of the rollout
+     */
+    public int evaluate(Game game) {
+        return leafEvaluator.evaluateLeaf(game);
+    }
+
+    public int getMaxTicks() {
+        return maxTicks;
+    }
+
+    public int getMaxJunctions() {
+        return maxJunctions;
+    }
+
+    public LeafEvaluator getLeafEvaluator() {
+        return leafEvaluator;
+    }
+}
@@ -0,0 +1,11 @@
+package entrants.pacman.chiefsan;
+
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+/**
+ * Policy moving pac-man during the rollouts. A policy may be used by several threads at once
+ */
+public interface RolloutPolicy {
+    MOVE getMove(Game game);
+}
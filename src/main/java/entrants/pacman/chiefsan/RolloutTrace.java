@@ -0,0 +1,124 @@
+package entrants.pacman.chiefsan;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Trace of the rollouts played by the search, recording the length, the reason the rollout ended and the score
+ * of every rollout into a lock-free ring buffer. Once the buffer is full the oldest rollouts are overwritten.
+ * Tracing is enabled with -Dchiefsan.trace=true. ENABLED is a constant, so when tracing is disabled the JIT
+ * removes the tracing code from the rollouts altogether
+ */
+public class RolloutTrace {
+
+    public static final boolean ENABLED = Boolean.getBoolean("chiefsan.trace");
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /**
+     * Reasons for a rollout to end
+     */
+    public enum Termination {
+        LEVEL_CLEARED, GAME_OVER, TICK_CAP, HORIZON
+    }
+
+    private static final Termination[] TERMINATIONS = Termination.values();
+
+    private final int mask;
+    private final AtomicLong next;
+    private final AtomicLongArray entries; // score << 32 | termination << 24 | length
+    private final AtomicLongArray sequences; // sequence number of the entry in every slot, -1 if never written
+    private long drained;
+
+    /**
+     * Constructor
+     * @param capacity number of rollouts kept, rounded up to a power of two
+     */
+    public RolloutTrace(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.next = new AtomicLong();
+        this.entries = new AtomicLongArray(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, -1);
+        }
+    }
+
+    public RolloutTrace() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Gets the trace shared by all the trees of the process
+     * @return shared trace
+     */
+    public static RolloutTrace getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    private static class Holder {
+        private static final RolloutTrace DEFAULT = new RolloutTrace();
+    }
+
+    /**
+     * Records a rollout. Safe to call from several threads at once
+     * @param length number of ticks played
+     * @param termination reason the rollout ended
+     * @param score score at the end of the rollout
+     */
+    public void record(int length, Termination termination, int score) {
+        long sequence = next.getAndIncrement();
+        int slot = (int) (sequence & mask);
+        sequences.set(slot, -1);
+        entries.set(slot, (long) score << 32 | (long) termination.ordinal() << 24 | (length & 0xFFFFFF));
+        sequences.set(slot, sequence);
+    }
+
+    /**
+     * Gets the number of rollouts recorded since the trace was created
+     * @return number of rollouts
+     */
+    public long size() {
+        return next.get();
+    }
+
+    /**
+     * Appends the rollouts recorded since the last drain to a file, one line of comma separated
+     * length, termination and score per rollout. Rollouts overwritten in the meantime are skipped.
+     * Meant to be called by a single thread, usually after the game
+     * @param file file to append to, created with a header if it does not exist
+     * @return number of rollouts written
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized int drainTo(Path file) throws IOException {
+        boolean exists = Files.exists(file);
+        int written = 0;
+
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            if (!exists)
+                writer.println("length,termination,score");
+
+            long end = next.get();
+            for (long sequence = Math.max(drained, end - mask - 1); sequence < end; sequence++) {
+                int slot = (int) (sequence & mask);
+                if (sequences.get(slot) != sequence)
+                    continue; // overwritten or still being written
+                long entry = entries.get(slot);
+                if (sequences.get(slot) != sequence)
+                    continue;
+
+                writer.println((entry & 0xFFFFFF) + "," + TERMINATIONS[(int) (entry >>> 24 & 0xFF)] + "," + (int) (entry >>> 32));
+                written++;
+            }
+            drained = end;
+        }
+
+        return written;
+    }
+}
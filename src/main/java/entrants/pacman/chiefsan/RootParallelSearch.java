@@ -0,0 +1,58 @@
+package entrants.pacman.chiefsan;
+
+import pacman.game.Game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Root parallel Monte Carlo Tree Search. Independent trees are searched in parallel
+ * and the statistics of their root children are merged
+ */
+public class RootParallelSearch extends ParallelSearch {
+
+    private NodePool[] pools;
+
+    /**
+     * Constructor
+     * @param threads number of trees searched in parallel
+     */
+    public RootParallelSearch(int threads) {
+        super(threads);
+        this.pools = new NodePool[threads];
+        for (int i = 0; i < threads; i++) {
+            pools[i] = new NodePool();
+        }
+    }
+
+    public RootParallelSearch() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Gets the pool holding the nodes of a tree
+     * @param tree index of the tree, between 0 and the number of threads
+     * @return pool
+     */
+    protected NodePool getNodePool(int tree) {
+        return pools[tree];
+    }
+
+    @Override
+    protected List<MonteCarloTree> createTrees(Game game, int threads) {
+        List<MonteCarloTree> trees = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            trees.add(new MonteCarloTree(game.copy(), pools[i]));
+        }
+        return trees;
+    }
+
+    @Override
+    protected MonteCarloTree combine(List<MonteCarloTree> trees) {
+        MonteCarloTree tree = trees.get(0);
+        for (int i = 1; i < trees.size(); i++) {
+            tree.merge(trees.get(i));
+        }
+        return tree;
+    }
+}
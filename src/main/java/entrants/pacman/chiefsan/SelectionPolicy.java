@@ -0,0 +1,115 @@
+package entrants.pacman.chiefsan;
+
+/**
+ * Base class for the policies selecting the child to descend to.
+ * A policy only holds its parameters, so a tree creates it once and reuses it for every selection
+ */
+public abstract class SelectionPolicy {
+
+    private double balanceParameter;
+    private double virtualLoss;
+
+    /**
+     * Constructor
+     * @param balanceParameter weight of the exploration term
+     * @param virtualLoss score subtracted per thread simulating through a child, 0 to disable virtual loss
+     */
+    public SelectionPolicy(double balanceParameter, double virtualLoss) {
+        this.balanceParameter = balanceParameter;
+        this.virtualLoss = virtualLoss;
+    }
+
+    /**
+     * Selects the best child after performing UCB calculations. With virtual loss enabled the selected
+     * child gets a virtual loss, which has to be removed once the simulation is backed up
+     * @param node node whose best child is to be found
+     * @return the best child of the node
+     */
+    public MonteCarloTreeNode selectChild(MonteCarloTreeNode node)  {
+
+        MonteCarloTreeNode selectedChild = null;
+        double max = Double.NEGATIVE_INFINITY;
+        double currentUcb;
+        double logParentVisits = Math.log(Math.max(1, node.getNumberOfVisits()));
+
+        for (int i = 0; i < node.getChildCount(); i++) {
+            MonteCarloTreeNode child = node.getChild(i);
+            currentUcb = getUcbValue(child, logParentVisits);
+            if (currentUcb > max) {
+                max = currentUcb;
+                selectedChild = child;
+            }
+        }
+
+        if (selectedChild == null)
+            throw new IllegalStateException("Child cannot be selected in a leaf node!");
+
+        if (virtualLoss > 0)
+            selectedChild.addVirtualLoss();
+
+        return selectedChild;
+    }
+
+    /**
+     * Computes the UCB value of a node
+     * @param node node whose value is to be computed
+     * @return UCB value
+     */
+    public double getUcbValue(MonteCarloTreeNode node) {
+        return getUcbValue(node, Math.log(Math.max(1, node.getParent().getNumberOfVisits())));
+    }
+
+    /**
+     * Computes the UCB value of a node. When the situation reached by the node has more visits in the
+     * transposition table than the node itself, the statistics of the situation are used instead.
+     * The threads currently simulating through the node count as visits lowering the average score
+     * @param node node whose value is to be computed
+     * @param logParentVisits logarithm of the number of visits to the parent of the node
+     * @return UCB value, positive infinity for a node never visited
+     */
+    protected double getUcbValue(MonteCarloTreeNode node, double logParentVisits) {
+        int visits = node.getNumberOfVisits();
+        double mean = node.getAverageScore();
+        double variance = node.getScoreVariance();
+
+        TranspositionTable table = node.getPool().getTranspositionTable();
+        long key = node.getStateKey();
+        if (table != null && key != 0) {
+            int slot = table.find(key);
+            if (slot != TranspositionTable.NONE && table.getVisits(slot) > visits) {
+                visits = table.getVisits(slot);
+                mean = table.getMean(slot) + node.getScoreBonus();
+                variance = table.getVariance(slot);
+            }
+        }
+
+        int pending = node.getVirtualLoss();
+        if (pending > 0) {
+            mean -= virtualLoss*pending/(visits+pending);
+            visits += pending;
+        }
+
+        if (visits == 0)
+            return Double.POSITIVE_INFINITY;
+
+        return getUcbValue(mean, variance, visits, logParentVisits);
+    }
+
+    /**
+     * Computes the UCB value from the statistics of a node
+     * @param averageScore average score of the node
+     * @param variance variance of the scores of the node
+     * @param visits number of visits to the node
+     * @param logParentVisits logarithm of the number of visits to the parent of the node
+     * @return UCB value
+     */
+    protected abstract double getUcbValue(double averageScore, double variance, int visits, double logParentVisits);
+
+    public double getBalanceParameter() {
+        return balanceParameter;
+    }
+
+    public double getVirtualLoss() {
+        return virtualLoss;
+    }
+}
@@ -0,0 +1,119 @@
+package entrants.pacman.chiefsan;
+
+/**
+ * Budget deciding when a timed search stops, from an exponentially weighted estimate of the mean and variance of
+ * the time taken by a simulation. Another simulation is only started while the time left before the deadline
+ * exceeds the mean by enough standard deviations that, by Cantelli's inequality, the simulation overruns the
+ * deadline with at most the target probability whatever the distribution of the times.
+ * The estimate is kept from a decision to the next, so a budget belongs to a single searching thread
+ */
+public class SimulationBudget {
+
+    public static final double DEFAULT_OVERRUN_PROBABILITY = 0.05;
+    public static final double DEFAULT_SMOOTHING = 0.05;
+
+    private double overrunProbability;
+    private double deviations;
+    private double smoothing;
+    private double meanCost;
+    private double costVariance;
+    private long samples;
+
+    /**
+     * Constructor
+     * @param overrunProbability highest probability that the last simulation ends after the deadline, in (0, 1)
+     * @param smoothing weight of the last simulation in the estimate, in (0, 1]
+     */
+    public SimulationBudget(double overrunProbability, double smoothing) {
+        setOverrunProbability(overrunProbability);
+        this.smoothing = smoothing;
+    }
+
+    public SimulationBudget(double overrunProbability) {
+        this(overrunProbability, DEFAULT_SMOOTHING);
+    }
+
+    public SimulationBudget() {
+        this(DEFAULT_OVERRUN_PROBABILITY);
+    }
+
+    /**
+     * Updates the estimate with the time taken by a simulation
+     * @param nanos time taken by the simulation
+     */
+    public void update(long nanos) {
+        if (samples++ == 0) {
+            meanCost = nanos;
+            costVariance = 0;
+            return;
+        }
+
+        double difference = nanos - meanCost;
+        double increment = smoothing * difference;
+        meanCost += increment;
+        costVariance = (1 - smoothing) * (costVariance + difference * increment);
+    }
+
+    /**
+     * Indicates whether another simulation can be started. Before the first simulation is measured,
+     * simulations are started until the deadline is reached
+     * @param now current value of System.nanoTime()
+     * @param deadline value of System.nanoTime() at which the search has to stop
+     * @return true if the next simulation ends before the deadline with the target probability; false otherwise
+     */
+    public boolean canSimulate(long now, long deadline) {
+        long remaining = deadline - now;
+        if (samples == 0)
+            return remaining > 0;
+        return getReserve() < remaining;
+    }
+
+    /**
+     * Sets the highest probability that the last simulation of a search ends after the deadline
+     * @param overrunProbability probability, in (0, 1)
+     * @throws IllegalArgumentException if the probability is not in (0, 1)
+     */
+    public void setOverrunProbability(double overrunProbability) {
+        if (!(overrunProbability > 0 && overrunProbability < 1))
+            throw new IllegalArgumentException("Overrun probability " + overrunProbability + " not in (0, 1)");
+
+        this.overrunProbability = overrunProbability;
+        this.deviations = Math.sqrt((1 - overrunProbability) / overrunProbability);
+    }
+
+    public double getOverrunProbability() {
+        return overrunProbability;
+    }
+
+    /**
+     * Gets the estimated time taken by a simulation
+     * @return mean time in nanoseconds, 0 before the first simulation
+     */
+    public double getMeanCost() {
+        return meanCost;
+    }
+
+    /**
+     * Gets the estimated standard deviation of the time taken by a simulation
+     * @return standard deviation in nanoseconds
+     */
+    public double getCostStandardDeviation() {
+        return Math.sqrt(costVariance);
+    }
+
+    /**
+     * Gets the time kept free before the deadline with the current estimate
+     * @return time in nanoseconds over which another simulation is started
+     */
+    public double getReserve() {
+        return meanCost + deviations * Math.sqrt(costVariance);
+    }
+
+    /**
+     * Gets the number of simulations measured
+     * @return number of simulations
+     */
+    public long getSamples() {
+        return samples;
+    }
+}
@@ -0,0 +1,151 @@
+package entrants.pacman.chiefsan;
+
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Ghost model for the simulations that does not allocate anything. Only the ghosts that have to take a
+ * decision get a move, written into a map reused between calls. A ghost flees from pac-man when it is edible
+ * or pac-man is close to a power pill, otherwise it chases pac-man with a given probability and takes a random
+ * move the rest of the time. Ghosts never reverse, and the moves are found from the precomputed tables of the maze
+ */
+public class SimulationGhosts implements GhostModel {
+
+    private static final double DEFAULT_CHASE_PROBABILITY = 0.9;
+    private static final int DEFAULT_POWER_PILL_DISTANCE = 15;
+    private static final GHOST[] GHOSTS = GHOST.values();
+    private static final MOVE[] DIRECTIONS = {MOVE.UP, MOVE.RIGHT, MOVE.DOWN, MOVE.LEFT};
+
+    private double chaseProbability;
+    private int powerPillDistance;
+    private SplittableRandom random;
+    private EnumMap<GHOST, MOVE> moves;
+
+    /**
+     * Constructor
+     * @param chaseProbability probability that a ghost chases pac-man rather than taking a random move
+     * @param powerPillDistance distance of pac-man to a power pill under which the ghosts flee, 0 to never flee
+     * @param random stream of the random moves, owned by this model
+     */
+    public SimulationGhosts(double chaseProbability, int powerPillDistance, SplittableRandom random) {
+        this.chaseProbability = chaseProbability;
+        this.powerPillDistance = powerPillDistance;
+        this.random = random;
+        this.moves = new EnumMap<>(GHOST.class);
+    }
+
+    public SimulationGhosts(double chaseProbability, int powerPillDistance) {
+        this(chaseProbability, powerPillDistance, new SplittableRandom());
+    }
+
+    public SimulationGhosts(SplittableRandom random) {
+        this(DEFAULT_CHASE_PROBABILITY, DEFAULT_POWER_PILL_DISTANCE, random);
+    }
+
+    public SimulationGhosts() {
+        this(DEFAULT_CHASE_PROBABILITY, DEFAULT_POWER_PILL_DISTANCE);
+    }
+
+    @Override
+    public Map<GHOST, MOVE> getMoves(Game game) {
+        moves.clear();
+
+        MazeTables tables = null;
+        int pacman = game.getPacmanCurrentNodeIndex();
+        boolean pacmanNearPowerPill = false;
+        boolean nearPowerPillComputed = false;
+
+        for (GHOST ghost: GHOSTS) {
+            if (!Boolean.TRUE.equals(game.doesGhostRequireAction(ghost)))
+                continue;
+
+            if (tables == null)
+                tables = MazeTables.get(game);
+
+            int node = game.getGhostCurrentNodeIndex(ghost);
+            MOVE lastMove = game.getGhostLastMoveMade(ghost);
+
+            if (pacman < 0) {
+                moves.put(ghost, getRandomMove(tables, node, lastMove));
+                continue;
+            }
+
+            if (!nearPowerPillComputed) {
+                pacmanNearPowerPill = isNearPowerPill(game, pacman);
+                nearPowerPillComputed = true;
+            }
+
+            if (game.getGhostEdibleTime(ghost) > 0 || pacmanNearPowerPill) {
+                moves.put(ghost, getMove(game, tables, node, lastMove, pacman, false));
+            } else if (random.nextDouble() < chaseProbability) {
+                moves.put(ghost, getMove(game, tables, node, lastMove, pacman, true));
+            } else {
+                moves.put(ghost, getRandomMove(tables, node, lastMove));
+            }
+        }
+
+        return moves;
+    }
+
+    private boolean isNearPowerPill(Game game, int pacman) {
+        if (powerPillDistance <= 0)
+            return false;
+
+        int[] powerPills = game.getPowerPillIndices();
+        for (int i = 0; i < powerPills.length; i++) {
+            if (Boolean.TRUE.equals(game.isPowerPillStillAvailable(i))
+                    && game.getShortestPathDistance(powerPills[i], pacman) < powerPillDistance)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Finds the move of a ghost towards or away from pac-man, without reversing
+     * @param game current game state
+     * @param tables tables of the current maze
+     * @param node node of the ghost
+     * @param lastMove last move of the ghost
+     * @param target node of pac-man
+     * @param towards true to move towards pac-man; false to move away
+     * @return move of the ghost
+     */
+    private static MOVE getMove(Game game, MazeTables tables, int node, MOVE lastMove, int target, boolean towards) {
+        MOVE bestMove = MOVE.NEUTRAL;
+        int bestDistance = towards ? Integer.MAX_VALUE : -1;
+
+        for (MOVE move: DIRECTIONS) {
+            int neighbour = tables.getNeighbour(node, move);
+            if (neighbour == -1 || move == lastMove.opposite())
+                continue;
+
+            int distance = game.getShortestPathDistance(neighbour, target);
+            if (towards ? distance < bestDistance : distance > bestDistance) {
+                bestDistance = distance;
+                bestMove = move;
+            }
+        }
+
+        return bestMove;
+    }
+
+    private MOVE getRandomMove(MazeTables tables, int node, MOVE lastMove) {
+        int count = 0;
+        for (MOVE move: DIRECTIONS) {
+            if (tables.getNeighbour(node, move) != -1 && move != lastMove.opposite())
+                count++;
+        }
+
+        int choice = count == 0 ? 0 : random.nextInt(count);
+        for (MOVE move: DIRECTIONS) {
+            if (tables.getNeighbour(node, move) != -1 && move != lastMove.opposite() && choice-- == 0)
+                return move;
+        }
+        return MOVE.NEUTRAL;
+    }
+}
@@ -0,0 +1,16 @@
+package entrants.pacman.chiefsan;
+
+import pacman.controllers.examples.StarterPacMan;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+/**
+ * Rollout policy playing the framework's StarterPacMan on every tick
+ */
+public class StarterRolloutPolicy implements RolloutPolicy {
+
+    @Override
+    public MOVE getMove(Game game) {
+        return new StarterPacMan().getMove(game, 0);
+    }
+}
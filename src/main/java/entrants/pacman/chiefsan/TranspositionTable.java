@@ -0,0 +1,216 @@
+package entrants.pacman.chiefsan;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded table of the statistics of game situations, keyed by their Zobrist hash, so that tree nodes
+ * reaching the same situation through different move orders share their statistics.
+ * Every hash maps to a bucket of two slots. A new situation takes an empty slot, otherwise the slot of a
+ * previous search, otherwise the slot with the fewest visits. Updates hold a per-slot spin lock, while
+ * lookups are lock-free and may observe a slot being replaced, which only affects the selection heuristics.
+ * The counters are kept by the updates, once per backup: a hit is an update finding its situation last stored
+ * by another node, so a node finding its own statistics does not count as a transposition
+ */
+public class TranspositionTable {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final int NONE = -1;
+
+    private static final int WAYS = 2;
+
+    private final int mask;
+    private final AtomicLongArray keys;
+    private final AtomicIntegerArray visits;
+    private final AtomicLongArray mean; // raw bits of the double mean of the scores
+    private final AtomicLongArray squaredDeviations; // raw bits of the double sum of squared deviations from the mean
+    private final int[] owners; // index of the node that last updated the slot
+    private final int[] generations;
+    private final AtomicIntegerArray lock;
+    private volatile int generation;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder sharedVisits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder replacements = new LongAdder();
+
+    /**
+     * Constructor
+     * @param capacity maximum number of situations in the table, rounded up to a power of two
+     */
+    public TranspositionTable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(WAYS, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.keys = new AtomicLongArray(size);
+        this.visits = new AtomicIntegerArray(size);
+        this.mean = new AtomicLongArray(size);
+        this.squaredDeviations = new AtomicLongArray(size);
+        this.generations = new int[size];
+        this.owners = new int[size];
+        this.lock = new AtomicIntegerArray(size);
+    }
+
+    public TranspositionTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Starts a new search. Situations of previous searches are kept but are replaced first
+     */
+    public void nextGeneration() {
+        generation++;
+    }
+
+    /**
+     * Finds the slot of a situation. Not counted as a lookup, so that selection can call it for every child
+     * @param key hash of the situation
+     * @return slot, NONE if the situation is not in the table
+     */
+    public int find(long key) {
+        int first = (int) key & mask & ~(WAYS - 1);
+        for (int slot = first; slot < first + WAYS; slot++) {
+            if (keys.get(slot) == key)
+                return slot;
+        }
+        return NONE;
+    }
+
+    /**
+     * Adds the score of a simulation backed up through a node to the statistics of its situation, storing the
+     * situation if needed. Counts a lookup, and a hit if the situation was last updated by another node, in which
+     * case the visits of the situation over those of the node are counted as shared
+     * @param key hash of the situation
+     * @param score score of the simulation
+     * @param owner index of the node in its pool
+     * @param ownerVisits number of visits to the node, including this simulation
+     */
+    public void update(long key, double score, int owner, int ownerVisits) {
+        int first = (int) key & mask & ~(WAYS - 1);
+        int slot = NONE;
+        for (int i = first; i < first + WAYS && slot == NONE; i++) {
+            if (keys.get(i) == key)
+                slot = i;
+        }
+
+        if (slot == NONE)
+            slot = getVictim(first);
+
+        while (!lock.compareAndSet(slot, 0, 1)) {
+            Thread.yield();
+        }
+        try {
+            lookups.increment();
+            if (keys.get(slot) != key) {
+                if (keys.get(slot) != 0)
+                    replacements.increment();
+                stores.increment();
+                keys.set(slot, key);
+                visits.set(slot, 0);
+                mean.set(slot, 0);
+                squaredDeviations.set(slot, 0);
+            } else if (owners[slot] != owner) {
+                hits.increment();
+                sharedVisits.add(Math.max(0, visits.get(slot) + 1 - ownerVisits));
+            }
+            generations[slot] = generation;
+            owners[slot] = owner;
+
+            int n = visits.get(slot) + 1;
+            double currentMean = getMean(slot);
+            double delta = score - currentMean;
+            double newMean = currentMean + delta / n;
+            mean.set(slot, Double.doubleToRawLongBits(newMean));
+            squaredDeviations.set(slot, Double.doubleToRawLongBits(
+                    Double.longBitsToDouble(squaredDeviations.get(slot)) + delta * (score - newMean)));
+            visits.set(slot, n);
+        } finally {
+            lock.set(slot, 0);
+        }
+    }
+
+    private int getVictim(int first) {
+        int victim = first;
+        for (int slot = first; slot < first + WAYS; slot++) {
+            if (keys.get(slot) == 0)
+                return slot;
+            boolean stale = generations[slot] != generation;
+            boolean victimStale = generations[victim] != generation;
+            if ((stale && !victimStale) || (stale == victimStale && visits.get(slot) < visits.get(victim)))
+                victim = slot;
+        }
+        return victim;
+    }
+
+    public int getVisits(int slot) {
+        return visits.get(slot);
+    }
+
+    public double getMean(int slot) {
+        return Double.longBitsToDouble(mean.get(slot));
+    }
+
+    /**
+     * Gets the variance of the scores of a situation
+     * @param slot slot of the situation
+     * @return variance, 0 if the situation has not been visited
+     */
+    public double getVariance(int slot) {
+        int n = visits.get(slot);
+        return n > 0 ? Double.longBitsToDouble(squaredDeviations.get(slot)) / n : 0;
+    }
+
+    /**
+     * Gets the number of slots of the table
+     * @return capacity
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Gets the number of situations stored in the table
+     * @return number of situations
+     */
+    public int size() {
+        int size = 0;
+        for (int slot = 0; slot <= mask; slot++) {
+            if (keys.get(slot) != 0)
+                size++;
+        }
+        return size;
+    }
+
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the share of the backups finding their situation last updated by another node
+     * @return hit rate between 0 and 1
+     */
+    public double getHitRate() {
+        long lookups = getLookups();
+        return lookups == 0 ? 0 : (double) getHits() / lookups;
+    }
+
+    /**
+     * Gets the number of visits the situations held over their nodes, summed over the hits
+     * @return number of visits
+     */
+    public long getSharedVisits() {
+        return sharedVisits.sum();
+    }
+
+    public long getStores() {
+        return stores.sum();
+    }
+
+    public long getReplacements() {
+        return replacements.sum();
+    }
+}
@@ -0,0 +1,61 @@
+package entrants.pacman.chiefsan;
+
+import pacman.game.Game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tree parallel Monte Carlo Tree Search. All the threads descend the same tree, whose nodes
+ * are updated lock-free, and virtual loss spreads the threads over different branches
+ */
+public class TreeParallelSearch extends ParallelSearch {
+
+    private static final double DEFAULT_VIRTUAL_LOSS = 1000;
+    private SelectionPolicy selectionPolicy;
+    private NodePool pool;
+
+    /**
+     * Constructor
+     * @param threads number of threads descending the tree
+     * @param virtualLoss score subtracted from a node per thread simulating through it
+     */
+    public TreeParallelSearch(int threads, double virtualLoss) {
+        super(threads);
+        this.selectionPolicy = new UCBTunedSelectionPolicy(UCBTunedSelectionPolicy.DEFAULT_BALANCE_PARAMETER, virtualLoss);
+        this.pool = new NodePool();
+    }
+
+    public TreeParallelSearch(int threads) {
+        this(threads, DEFAULT_VIRTUAL_LOSS);
+    }
+
+    public TreeParallelSearch() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    protected List<MonteCarloTree> createTrees(Game game, int threads) {
+        List<MonteCarloTree> trees = new ArrayList<>(threads);
+        MonteCarloTreeNode rootNode = pool.newRoot();
+        for (int i = 0; i < threads; i++) {
+            trees.add(new MonteCarloTree(game.copy(), rootNode, selectionPolicy));
+        }
+        return trees;
+    }
+
+    /**
+     * Expands the shared root and backs up the rollouts of its children on a single thread, so that no thread
+     * selects among the children of the root before the root has any visit
+     */
+    @Override
+    protected int prepare(List<MonteCarloTree> trees) {
+        trees.get(0).simulate();
+        return 1;
+    }
+
+    @Override
+    protected MonteCarloTree combine(List<MonteCarloTree> trees) {
+        return trees.get(0);
+    }
+}
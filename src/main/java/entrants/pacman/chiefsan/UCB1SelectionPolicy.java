@@ -0,0 +1,34 @@
+package entrants.pacman.chiefsan;
+
+/**
+ * Computes UCB1 and selects the children
+ */
+public class UCB1SelectionPolicy extends SelectionPolicy {
+
+    public static final double DEFAULT_BALANCE_PARAMETER = 10000;
+
+    /**
+     * Constructor
+     * @param balanceParameter weight of the exploration term
+     * @param virtualLoss score subtracted per thread simulating through a child, 0 to disable virtual loss
+     */
+    public UCB1SelectionPolicy(double balanceParameter, double virtualLoss) {
+        super(balanceParameter, virtualLoss);
+    }
+
+    public UCB1SelectionPolicy(double balanceParameter) {
+        this(balanceParameter, 0);
+    }
+
+    /**
+     * Default constructor
+     */
+    public UCB1SelectionPolicy() {
+        this(DEFAULT_BALANCE_PARAMETER);
+    }
+
+    @Override
+    protected double getUcbValue(double averageScore, double variance, int visits, double logParentVisits) {
+        return averageScore + getBalanceParameter() * Math.sqrt(logParentVisits / visits);
+    }
+}
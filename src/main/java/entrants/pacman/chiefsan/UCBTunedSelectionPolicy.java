@@ -1,49 +1,50 @@
 package entrants.pacman.chiefsan;
 
 /**
- * Computes UCB and selects the children
+ * Computes UCB1-Tuned and selects the children.
+ * The variance term of UCB1-Tuned is capped at 1/4, the largest variance of a reward in [0, 1],
+ * so the variance of the scores is normalised by the range of the scores before it is used
  */
-public class UCBTunedSelectionPolicy {
+public class UCBTunedSelectionPolicy extends SelectionPolicy {
 
-    private static final double DEFAULT_BALANCE_PARAMETER = 10000;
-    private double balanceParameter;
+    public static final double DEFAULT_BALANCE_PARAMETER = 1;
+    public static final double DEFAULT_SCORE_RANGE = 10000;
+    private double scoreRange;
 
     /**
-     * Default constructor
+     * Constructor
+     * @param balanceParameter weight of the exploration term
+     * @param scoreRange difference between the highest and the lowest score of a simulation
+     * @param virtualLoss score subtracted per thread simulating through a child, 0 to disable virtual loss
      */
-    public UCBTunedSelectionPolicy() {
-        this.balanceParameter = DEFAULT_BALANCE_PARAMETER;
+    public UCBTunedSelectionPolicy(double balanceParameter, double scoreRange, double virtualLoss) {
+        super(balanceParameter, virtualLoss);
+        this.scoreRange = scoreRange;
     }
 
-    /**
-     * Selects the best child after performing UCB calculations
-     * @param node node whose best child is to be found
-     * @return the best child of the node
-     */
-    public MonteCarloTreeNode selectChild(MonteCarloTreeNode node)  {
-
-        MonteCarloTreeNode selectedChild = null;
-        double max = Double.NEGATIVE_INFINITY;
-        double currentUcb;
+    public UCBTunedSelectionPolicy(double balanceParameter, double virtualLoss) {
+        this(balanceParameter, DEFAULT_SCORE_RANGE, virtualLoss);
+    }
 
-        for (MonteCarloTreeNode child: node.getChildren()) {
-            currentUcb = getUcbValue(child);
-            if (currentUcb > max) {
-                max = currentUcb;
-                selectedChild = child;
-            }
-        }
+    public UCBTunedSelectionPolicy(double balanceParameter) {
+        this(balanceParameter, 0);
+    }
 
-        if (selectedChild == null)
-            throw new IllegalStateException("Child cannot be selected in a leaf node!");
+    /**
+     * Default constructor
+     */
+    public UCBTunedSelectionPolicy() {
+        this(DEFAULT_BALANCE_PARAMETER);
+    }
 
-        return selectedChild;
+    @Override
+    protected double getUcbValue(double averageScore, double variance, int visits, double logParentVisits) {
+        double bound = variance/(scoreRange*scoreRange) + Math.sqrt(2*logParentVisits/visits);
+        return averageScore + getBalanceParameter() * scoreRange *
+                Math.sqrt(logParentVisits/visits*Math.min(0.25, bound));
     }
 
-    public double getUcbValue(MonteCarloTreeNode node) {
-//        return node.getAverageScore() + balanceParameter *
-//                Math.sqrt(Math.log(node.getParent().getNumberOfVisits()) / node.getNumberOfVisits());
-        return node.getAverageScore() + 1 *
-                Math.sqrt(2*Math.log(node.getParent().getNumberOfVisits()) / node.getNumberOfVisits()*Math.min(0.25, node.getNumberOfVisits()));
+    public double getScoreRange() {
+        return scoreRange;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,93 @@
+package entrants.pacman.chiefsan;
+
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+import pacman.game.internal.Maze;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Zobrist hashing of the game situations searched by the tree: the node and last move of pac-man,
+ * the remaining pills and power pills, and the node and edible time of every ghost.
+ * Edible times are bucketed, so that situations reached a few ticks apart still hash the same.
+ * The random keys are generated once per maze from a fixed seed and shared by all the threads
+ */
+public final class ZobristHash {
+
+    private static final Map<Maze, ZobristHash> HASHES = new ConcurrentHashMap<>();
+    private static final long SEED = 0x5DEECE66DL;
+    private static final int EDIBLE_BUCKETS = 8;
+    private static final int EDIBLE_BUCKET_SHIFT = 5;
+    private static final GHOST[] GHOSTS = GHOST.values();
+
+    private final long[] pacmanNodes;
+    private final long[] pacmanMoves;
+    private final long[] pills;
+    private final long[] powerPills;
+    private final long[] ghostNodes; // ghost * nodes + node
+    private final long[] ghostEdible; // ghost * EDIBLE_BUCKETS + bucket
+    private final int nodes;
+
+    private ZobristHash(Maze maze) {
+        Random random = new Random(SEED + maze.graph.length);
+        this.nodes = maze.graph.length;
+        this.pacmanNodes = keys(random, nodes);
+        this.pacmanMoves = keys(random, MOVE.values().length);
+        this.pills = keys(random, maze.pillIndices.length);
+        this.powerPills = keys(random, maze.powerPillIndices.length);
+        this.ghostNodes = keys(random, GHOSTS.length * nodes);
+        this.ghostEdible = keys(random, GHOSTS.length * EDIBLE_BUCKETS);
+    }
+
+    private static long[] keys(Random random, int count) {
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = random.nextLong();
+        }
+        return keys;
+    }
+
+    /**
+     * Gets the hash function of the maze being played
+     * @param game current game state
+     * @return hash function of the current maze
+     */
+    public static ZobristHash get(Game game) {
+        return HASHES.computeIfAbsent(game.getCurrentMaze(), ZobristHash::new);
+    }
+
+    /**
+     * Hashes a game situation
+     * @param game game state
+     * @return hash, never 0
+     */
+    public long hash(Game game) {
+        long hash = pacmanNodes[game.getPacmanCurrentNodeIndex()]
+                ^ pacmanMoves[game.getPacmanLastMoveMade().ordinal()];
+
+        for (int i = 0; i < pills.length; i++) {
+            if (Boolean.TRUE.equals(game.isPillStillAvailable(i)))
+                hash ^= pills[i];
+        }
+
+        for (int i = 0; i < powerPills.length; i++) {
+            if (Boolean.TRUE.equals(game.isPowerPillStillAvailable(i)))
+                hash ^= powerPills[i];
+        }
+
+        for (int g = 0; g < GHOSTS.length; g++) {
+            int node = game.getGhostCurrentNodeIndex(GHOSTS[g]);
+            if (node >= 0)
+                hash ^= ghostNodes[g * nodes + node];
+
+            int edibleTime = game.getGhostEdibleTime(GHOSTS[g]);
+            int bucket = edibleTime <= 0 ? 0 : Math.min(EDIBLE_BUCKETS - 1, 1 + (edibleTime >> EDIBLE_BUCKET_SHIFT));
+            hash ^= ghostEdible[g * EDIBLE_BUCKETS + bucket];
+        }
+
+        return hash == 0 ? 1 : hash;
+    }
+}
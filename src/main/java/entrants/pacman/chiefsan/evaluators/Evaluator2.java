@@ -1,22 +1,35 @@
 package entrants.pacman.chiefsan.evaluators;
 
+import entrants.pacman.chiefsan.GhostModel;
+import entrants.pacman.chiefsan.JunctionGraph;
 import entrants.pacman.chiefsan.MonteCarloTreeNode;
 import entrants.pacman.chiefsan.MonteCarloTree;
 import entrants.pacman.chiefsan.MyPacMan;
-import pacman.controllers.MASController;
-import pacman.controllers.examples.po.POCommGhosts;
+import entrants.pacman.chiefsan.SimulationGhosts;
 import pacman.game.Constants;
 import pacman.game.Constants.DM;
 import pacman.game.Game;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 public class Evaluator2 implements TreeEvaluator {
     private int bonus;
+    private GhostModel ghosts;
     private static final int DEFAULT_BONUS = 300;
 
-    public Evaluator2(int bonus) {
+    /**
+     * Constructor
+     * @param bonus bonus of the children getting pac-man closer to a pill
+     * @param ghosts model of the ghosts in the simulated corridors, null to play SimulationGhosts
+     *               on a stream split from the stream of the evaluated tree
+     */
+    public Evaluator2(int bonus, GhostModel ghosts) {
         this.bonus = bonus;
+        this.ghosts = ghosts;
+    }
+
+    public Evaluator2(int bonus) {
+        this(bonus, null);
     }
 
     public Evaluator2() {
@@ -27,21 +40,29 @@ public class Evaluator2 implements TreeEvaluator {
     @Override
     public void evaluateTree(MonteCarloTree tree) {
         Game game = tree.getGameState();
+        SplittableRandom random = tree.getRandom();
+        GhostModel ghosts = this.ghosts != null ? this.ghosts : new SimulationGhosts(random.split());
         double distance = getDistanceToNeartestPill(game);
+        JunctionGraph graph = JunctionGraph.get(game);
 
         for (MonteCarloTreeNode child: tree.getPacManChildren()) {
+            JunctionGraph.Edge edge = graph.getEdge(game.getPacmanCurrentNodeIndex(), child.getMove());
+            if (edge != null && !graph.isGhostNear(game, edge, 0)) {
+                // no ghost can interfere, so the corridor is followed without simulating it
+                if (getDistanceAfterCorridor(game, edge, random) < distance)
+                    child.addScoreBonus(bonus);
+                continue;
+            }
+
             game = tree.pushGameState();
 
-            MASController ghosts = new POCommGhosts(50);
-            game.advanceGame(child.getMove(), ghosts.getMove(game, 0));
+            game.advanceGame(child.getMove(), ghosts.getMoves(game));
 
             while (!game.isJunction(game.getPacmanCurrentNodeIndex())) {
-                game.advanceGame(MyPacMan.nonJunctionSim(game), ghosts.getMove(game, 40));
+                game.advanceGame(MyPacMan.nonJunctionSim(game, random), ghosts.getMoves(game));
             }
             Constants.MOVE[] possibleMoves = game.getPossibleMoves(game.getPacmanCurrentNodeIndex());
-            Random random = new Random();
-            game.advanceGame(possibleMoves[random.nextInt(possibleMoves.length)],
-                    ghosts.getMove(game.copy(), 40));
+            game.advanceGame(possibleMoves[random.nextInt(possibleMoves.length)], ghosts.getMoves(game));
 
             double d = getDistanceToNeartestPill(game);
 
@@ -49,7 +70,40 @@ public class Evaluator2 implements TreeEvaluator {
                 child.addScoreBonus(bonus);
 
             tree.popGameState();
+            game = tree.getGameState();
+        }
+    }
+
+
+    private double getDistanceAfterCorridor(Game game, JunctionGraph.Edge edge, SplittableRandom random) {
+        int junction = edge.getTo();
+        Constants.MOVE[] possibleMoves = game.getPossibleMoves(junction);
+        int currentIndex = game.getNeighbour(junction, possibleMoves[random.nextInt(possibleMoves.length)]);
+
+        int[] pills = game.getPillIndices();
+        int[] eaten = edge.getPills();
+        // the pills of the junction and of the node stepped to are eaten as in the simulated corridor
+        int junctionPill = game.getPillIndex(junction);
+        int steppedPill = game.getPillIndex(currentIndex);
+        double min = Double.MAX_VALUE;
+
+        for (int i = 0; i < pills.length; i++) {
+            if (Boolean.TRUE.equals(game.isPillStillAvailable(i)) && !contains(eaten, i)
+                    && i != junctionPill && i != steppedPill) {
+                min = Math.min(min, game.getDistance(currentIndex, pills[i], DM.MANHATTAN));
+            }
+        }
+
+        return min;
+    }
+
+
+    private static boolean contains(int[] array, int value) {
+        for (int element: array) {
+            if (element == value)
+                return true;
         }
+        return false;
     }
 
 
@@ -8,11 +8,13 @@ public class Evaluator4 implements TreeEvaluator {
     private static final int RULE1_DEFAULT_BONUS = 400;
     private static final int RULE2_DEFAULT_BONUS = 300;
     private int rule1Bonus, rule2Bonus;
+    private Evaluator2 eval;
 
 
     public Evaluator4(int rule1Bonus, int rule2Bonus) {
         this.rule1Bonus = rule1Bonus;
         this.rule2Bonus = rule2Bonus;
+        this.eval = new Evaluator2();
     }
 
     public Evaluator4() {
@@ -21,8 +23,6 @@ public class Evaluator4 implements TreeEvaluator {
 
     @Override
     public void evaluateTree(MonteCarloTree simulator) {
-        Evaluator2 eval = new Evaluator2();
-
         for (MonteCarloTreeNode child: simulator.getPacManChildren()) {
             if (child.isMoveEatsPills()) {
                 child.addScoreBonus(rule1Bonus);
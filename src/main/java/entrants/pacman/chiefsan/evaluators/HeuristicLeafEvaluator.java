@@ -0,0 +1,79 @@
+package entrants.pacman.chiefsan.evaluators;
+
+import pacman.game.Constants.GHOST;
+import pacman.game.Game;
+
+/**
+ * Estimates the score a rollout would end with from the state it is cut at: the current score,
+ * the pills still to eat weighted by the chance that pac-man survives to eat them, and the
+ * edible ghosts close enough to be caught before they recover.
+ * The chance to survive grows with the lives left and shrinks with the ghosts close to pac-man
+ */
+public class HeuristicLeafEvaluator implements LeafEvaluator {
+
+    private static final int DEFAULT_PILL_VALUE = 10;
+    private static final int DEFAULT_POWER_PILL_VALUE = 50;
+    private static final int DEFAULT_EDIBLE_GHOST_VALUE = 200;
+    private static final int DEFAULT_DANGER_DISTANCE = 20;
+    private int pillValue;
+    private int powerPillValue;
+    private int edibleGhostValue;
+    private int dangerDistance;
+
+
+    public HeuristicLeafEvaluator(int pillValue, int powerPillValue, int edibleGhostValue, int dangerDistance) {
+        this.pillValue = pillValue;
+        this.powerPillValue = powerPillValue;
+        this.edibleGhostValue = edibleGhostValue;
+        this.dangerDistance = dangerDistance;
+    }
+
+
+    public HeuristicLeafEvaluator() {
+        this(DEFAULT_PILL_VALUE, DEFAULT_POWER_PILL_VALUE, DEFAULT_EDIBLE_GHOST_VALUE, DEFAULT_DANGER_DISTANCE);
+    }
+
+
+    @Override
+    public int evaluateLeaf(Game game) {
+        int pacman = game.getPacmanCurrentNodeIndex();
+        int lives = game.getPacmanNumberOfLivesRemaining();
+        double survival = lives / (lives + 1.0);
+        double value = game.getScore();
+
+        for (GHOST ghost: GHOST.values()) {
+            int node = game.getGhostCurrentNodeIndex(ghost);
+            if (game.getGhostLairTime(ghost) > 0 || node < 0)
+                continue;
+
+            int distance = game.getShortestPathDistance(pacman, node);
+            if (game.getGhostEdibleTime(ghost) > 0) {
+                if (game.getGhostEdibleTime(ghost) > distance)
+                    value += edibleGhostValue;
+            } else if (distance < dangerDistance) {
+                survival *= (double) distance / dangerDistance;
+            }
+        }
+
+        value += survival * (pillValue * game.getNumberOfActivePills()
+                + powerPillValue * game.getNumberOfActivePowerPills());
+
+        return (int) value;
+    }
+
+    public int getPillValue() {
+        return pillValue;
+    }
+
+    public int getPowerPillValue() {
+        return powerPillValue;
+    }
+
+    public int getEdibleGhostValue() {
+        return edibleGhostValue;
+    }
+
+    public int getDangerDistance() {
+        return dangerDistance;
+    }
+}
@@ -0,0 +1,7 @@
+package entrants.pacman.chiefsan.evaluators;
+
+import pacman.game.Game;
+
+public interface LeafEvaluator {
+    int evaluateLeaf(Game game);
+}
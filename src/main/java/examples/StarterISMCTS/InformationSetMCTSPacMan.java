@@ -1,6 +1,8 @@
 package examples.StarterISMCTS;
 
 import com.fossgalaxy.object.annotations.ObjectDef;
+import entrants.pacman.chiefsan.GhostModel;
+import entrants.pacman.chiefsan.SimulationGhosts;
 import pacman.controllers.PacmanController;
 import pacman.game.Drawable;
 import pacman.game.Game;
@@ -16,6 +18,7 @@ import java.awt.*;
 import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.List;
 
 import static pacman.game.Constants.*;
@@ -27,6 +30,8 @@ public class InformationSetMCTSPacMan extends PacmanController implements Drawab
     protected final int maxTreeDepth;
     protected final int maxRolloutDepth;
     protected Random random = new Random();
+    // Send all the ghosts towards Ms. Pac-Man, away from her when edible
+    protected GhostModel ghostModel = new SimulationGhosts(1, 0, new SplittableRandom(random.nextLong()));
     private GhostPredictionsFast predictions;
     private PillModel pillModel;
     private Maze currentMaze;
@@ -206,7 +211,7 @@ class ISNode {
     }
 
     private void advanceGame(Game game, MOVE move) {
-        game.advanceGame(move, getBasicGhostMoves(game));
+        game.advanceGame(move, informationSetMCTSPacMan.ghostModel.getMoves(game));
 //        game.advanceGameWithoutReverse(move, getBasicGhostMoves(game));
     }
 